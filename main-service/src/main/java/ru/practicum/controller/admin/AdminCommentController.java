@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.CommentDtoAdmin;
 import ru.practicum.dto.CommentSearchRequestAdmin;
@@ -20,9 +21,9 @@ public class AdminCommentController {
     private final CommentService commentService;
 
     @PostMapping("/search")
-    public List<CommentDtoAdmin> getComments(@Valid @RequestBody CommentSearchRequestAdmin param) {
+    public ResponseEntity<List<CommentDtoAdmin>> getComments(@Valid @RequestBody CommentSearchRequestAdmin param) {
         log.info("Создан запрос на поиск комментариев администратором с параметрами param={}", param);
-        return commentService.searchCommentsByAdmin(param);
+        return commentService.searchCommentsByAdmin(param).toResponse();
     }
 
     @PatchMapping
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.EventFullDto;
 import ru.practicum.dto.EventSearchRequestAdmin;
@@ -23,19 +24,20 @@ public class AdminEventController {
     private final EventService eventService;
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<EventFullDto> searchForAdmin(
+    public ResponseEntity<List<EventFullDto>> searchForAdmin(
             @RequestParam(required = false) List<Long> users,
             @RequestParam(required = false) List<EventState> states,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
 
         log.info("Поиск события администратором");
-        EventSearchRequestAdmin param = new EventSearchRequestAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
-        return eventService.searchForAdmin(param);
+        EventSearchRequestAdmin param = new EventSearchRequestAdmin(users, states, categories, rangeStart, rangeEnd, from, size, cursor, withTotal);
+        return eventService.searchForAdmin(param).toResponse();
     }
 
     @PatchMapping("/{eventId}")
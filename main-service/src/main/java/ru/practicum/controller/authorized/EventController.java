@@ -4,6 +4,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.*;
 import ru.practicum.service.EventService;
@@ -41,11 +42,11 @@ public class EventController {
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<EventShortDto> getAllByUser(@PathVariable Long userId,
-                                            @RequestParam(defaultValue = "0") Integer from,
-                                            @RequestParam(defaultValue = "10") Integer size) {
+    public ResponseEntity<List<EventShortDto>> getAllByUser(@PathVariable Long userId,
+                                                            @RequestParam(defaultValue = "0") Integer from,
+                                                            @RequestParam(defaultValue = "10") Integer size,
+                                                            @RequestParam(required = false) String cursor) {
         log.info("Получение событий, добавленных пользователем {}", userId);
-        return eventService.getAllByUser(userId, from, size);
+        return eventService.getAllByUser(userId, from, size, cursor).toResponse();
     }
 }
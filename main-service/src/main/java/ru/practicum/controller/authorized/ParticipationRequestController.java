@@ -4,12 +4,15 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.practicum.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.dto.EventRequestStatusUpdateResult;
 import ru.practicum.dto.ParticipationRequestDto;
 import ru.practicum.service.ParticipationRequestService;
 
+import java.net.URI;
 import java.util.List;
 
 @Slf4j
@@ -20,11 +23,29 @@ public class ParticipationRequestController {
     private final ParticipationRequestService service;
 
     @PostMapping("/{userId}/requests")
-    @ResponseStatus(HttpStatus.CREATED)
-    public ParticipationRequestDto addParticipationRequest(@PathVariable Long userId,
-                                                           @RequestParam Long eventId) {
+    public ResponseEntity<ParticipationRequestDto> addParticipationRequest(@PathVariable Long userId,
+                                                                           @RequestParam Long eventId) {
         log.info("Creating participation request, userId={}, eventId={}", userId, eventId);
-        return service.addParticipationRequest(userId, eventId);
+        ParticipationRequestDto request = service.addParticipationRequest(userId, eventId);
+        if (ParticipationRequestService.QUEUED_STATUS.equals(request.getStatus())) {
+            return ResponseEntity.accepted()
+                    .location(queuedRequestLocation(userId, request.getTicket()))
+                    .body(request);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(request);
+    }
+
+    @GetMapping("/{userId}/requests/queued/{ticket}")
+    public ResponseEntity<ParticipationRequestDto> getQueuedRequest(@PathVariable Long userId,
+                                                                    @PathVariable String ticket) {
+        log.info("Getting queued participation request, userId={}, ticket={}", userId, ticket);
+        ParticipationRequestDto request = service.getQueuedRequest(userId, ticket);
+        if (ParticipationRequestService.QUEUED_STATUS.equals(request.getStatus())) {
+            return ResponseEntity.accepted()
+                    .location(queuedRequestLocation(userId, request.getTicket()))
+                    .body(request);
+        }
+        return ResponseEntity.ok(request);
     }
 
     @GetMapping("/{userId}/requests")
@@ -56,4 +77,11 @@ public class ParticipationRequestController {
         log.info("Getting participation request list for user event, userId={}, eventId={}", userId, eventId);
         return service.getEventParticipants(userId, eventId);
     }
+
+    private URI queuedRequestLocation(Long userId, String ticket) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/users/{userId}/requests/queued/{ticket}")
+                .buildAndExpand(userId, ticket)
+                .toUri();
+    }
 }
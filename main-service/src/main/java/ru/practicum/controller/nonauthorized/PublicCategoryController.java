@@ -2,6 +2,7 @@ package ru.practicum.controller.nonauthorized;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.CategoryDto;
 import ru.practicum.service.CategoryService;
@@ -16,10 +17,11 @@ public class PublicCategoryController {
     private final CategoryService categoryService;
 
     @GetMapping
-    public List<CategoryDto> getCategories(@RequestParam(required = false, defaultValue = "0") Integer from,
-                                           @RequestParam(required = false, defaultValue = "10") Integer size) {
-        log.info("Getting category list, from={}, size={}", from, size);
-        return categoryService.getCategories(from, size);
+    public ResponseEntity<List<CategoryDto>> getCategories(@RequestParam(required = false, defaultValue = "0") Integer from,
+                                                           @RequestParam(required = false, defaultValue = "10") Integer size,
+                                                           @RequestParam(required = false) String cursor) {
+        log.info("Getting category list, from={}, size={}, cursor={}", from, size, cursor);
+        return categoryService.getCategories(from, size, cursor).toResponse();
     }
 
     @GetMapping("/{catId}")
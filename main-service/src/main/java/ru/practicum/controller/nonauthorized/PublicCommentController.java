@@ -0,0 +1,26 @@
+package ru.practicum.controller.nonauthorized;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.CommentDto;
+import ru.practicum.service.CommentService;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = "/events/{eventId}/comments")
+public class PublicCommentController {
+    private final CommentService commentService;
+
+    @GetMapping
+    public ResponseEntity<List<CommentDto>> getEventComments(@PathVariable Long eventId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "10") Integer size) {
+        log.info("Получение комментариев события eventId={}, cursor={}, size={}", eventId, cursor, size);
+        return commentService.getEventComments(eventId, cursor, size).toResponse();
+    }
+}
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.NewEndpointHitDto;
 import ru.practicum.StatsClient;
@@ -12,6 +13,7 @@ import ru.practicum.dto.EventFullDto;
 import ru.practicum.dto.EventSearchRequestUser;
 import ru.practicum.dto.EventShortDto;
 import ru.practicum.service.EventService;
+import ru.practicum.util.CursorPage;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,38 +38,39 @@ public class PublicEventController {
                 request.getRemoteAddr(), LocalDateTime.now().format(DATE_TIME_FORMATTER));
 
         log.info("Отправка запроса в сервис статистики из метода getEvent() с dto={}", hitDto);
-        statsClient.hit(hitDto);
+        statsClient.registerHit(hitDto);
         log.info("Отправка запроса в сервис статистики из метода getEvent() завершена успешно");
         return eventService.getPublicEvent(id);
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<EventShortDto> searchForUser(@RequestParam(required = false) String text,
-                                             @RequestParam(required = false) List<Long> categories,
-                                             @RequestParam(required = false) Boolean paid,
-                                             @RequestParam(required = false)
-                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
-                                             @RequestParam(required = false)
-                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
-                                             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
-                                             @RequestParam(required = false) String sort,
-                                             @RequestParam(defaultValue = "0") Integer from,
-                                             @RequestParam(defaultValue = "10") Integer size,
-                                             HttpServletRequest request) {
+    public ResponseEntity<List<EventShortDto>> searchForUser(@RequestParam(required = false) String text,
+                                                             @RequestParam(required = false) List<Long> categories,
+                                                             @RequestParam(required = false) Boolean paid,
+                                                             @RequestParam(required = false)
+                                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
+                                                             @RequestParam(required = false)
+                                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
+                                                             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
+                                                             @RequestParam(required = false) String sort,
+                                                             @RequestParam(defaultValue = "0") Integer from,
+                                                             @RequestParam(defaultValue = "10") Integer size,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "false") boolean withTotal,
+                                                             HttpServletRequest request) {
         log.info("Получение событий публичным эндпоинтом");
-        EventSearchRequestUser param = new EventSearchRequestUser(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
+        EventSearchRequestUser param = new EventSearchRequestUser(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size, cursor, withTotal);
         log.info("Сформирован DTO с параметрами запроса {}", param);
 
-        List<EventShortDto> resp = eventService.searchForUser(param);
+        CursorPage<EventShortDto> resp = eventService.searchForUser(param);
 
         NewEndpointHitDto hitDto = new NewEndpointHitDto(APP_NAME, request.getRequestURI(),
                 request.getRemoteAddr(), LocalDateTime.now().format(DATE_TIME_FORMATTER));
 
         log.info("Отправка запроса в сервис статистики из метода searchForUser() с dto={}", hitDto);
-        statsClient.hit(hitDto);
+        statsClient.registerHit(hitDto);
         log.info("Отправка запроса в сервис статистики из метода searchForUser() завершена успешно");
 
-        return resp;
+        return resp.toResponse();
     }
 }
@@ -37,8 +37,9 @@ public class CommentSearchRequestAdmin {
     @Positive(message = "Значение должно быть положительным числом")
     private int size;
 
+    private String cursor;
 
-    public CommentSearchRequestAdmin(String text, List<Long> eventIds, Long userId, LocalDateTime rangeStart, LocalDateTime rangeEnd, List<CommentStatus> statusList, Integer from, Integer size) {
+    public CommentSearchRequestAdmin(String text, List<Long> eventIds, Long userId, LocalDateTime rangeStart, LocalDateTime rangeEnd, List<CommentStatus> statusList, Integer from, Integer size, String cursor) {
         this.text = text;
         this.eventIds = eventIds;
         this.userId = userId;
@@ -47,5 +48,6 @@ public class CommentSearchRequestAdmin {
         this.statusList = statusList;
         this.from = from == null ? 0 : from;
         this.size = size == null ? 10 : size;
+        this.cursor = cursor;
     }
 }
@@ -25,4 +25,5 @@ public class EventFullDto {
     private String title;
     private Long views;
     private List<CommentDto> comments = new ArrayList<>();
+    private Long commentsCount;
 }
@@ -18,4 +18,6 @@ public class EventSearchRequestAdmin {
     private LocalDateTime rangeEnd;
     private Integer from;
     private Integer size;
+    private String cursor;
+    private boolean withTotal;
 }
@@ -19,4 +19,6 @@ public class EventSearchRequestUser {
     private String sort;
     private Integer from;
     private Integer size;
+    private String cursor;
+    private boolean withTotal;
 }
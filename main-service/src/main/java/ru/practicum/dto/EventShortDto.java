@@ -17,4 +17,5 @@ public class EventShortDto {
     private String title;
     private Long views;
     private List<CommentDto> comments = new ArrayList<>();
+    private Long commentsCount;
 }
@@ -1,5 +1,6 @@
 package ru.practicum.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 @Data
@@ -9,4 +10,9 @@ public class ParticipationRequestDto {
     private Long id;
     private Long requester;
     private String status;
+    /**
+     * Номер заявки в очереди регистрации, только для статуса QUEUED.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String ticket;
 }
@@ -13,12 +13,4 @@ public interface CategoryMapper {
 
     @Mapping(target = "id", ignore = true)
     Category mapNewCategoryDtoToCategory(NewCategoryDto newCategoryDto);
-
-    static CategoryDto mapToCategoryDto(Category category) {
-        CategoryDto categoryDto = new CategoryDto();
-        categoryDto.setId(category.getId());
-        categoryDto.setName(category.getName());
-
-        return categoryDto;
-    }
 }
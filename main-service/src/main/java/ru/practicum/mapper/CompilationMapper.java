@@ -20,5 +20,7 @@ public interface CompilationMapper {
     CompilationDto mapCompilationToCompilationDto(Compilation compilation);
 
     @Mapping(target = "eventDate", source = "eventDate", dateFormat = "yyyy-MM-dd HH:mm:ss")
+    @Mapping(target = "comments", ignore = true)
+    @Mapping(target = "commentsCount", ignore = true)
     EventShortDto mapEventToEventShortDto(Event event);
 }
@@ -2,11 +2,14 @@ package ru.practicum.mapper;
 
 import lombok.experimental.UtilityClass;
 import org.mapstruct.factory.Mappers;
+import ru.practicum.dto.CategoryDto;
 import ru.practicum.dto.EventFullDto;
 import ru.practicum.dto.EventShortDto;
 import ru.practicum.dto.NewEventDto;
+import ru.practicum.dto.UserShortDto;
 import ru.practicum.model.Category;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShortView;
 import ru.practicum.model.EventState;
 import ru.practicum.model.User;
 
@@ -38,11 +41,11 @@ public class EventMapper {
         return event;
     }
 
-    public static EventFullDto mapToFullDto(Event event) {
+    public static EventFullDto mapToFullDto(Event event, CategoryDto category) {
         EventFullDto fullDto = new EventFullDto();
 
         fullDto.setAnnotation(event.getAnnotation());
-        fullDto.setCategory(CategoryMapper.mapToCategoryDto(event.getCategory()));
+        fullDto.setCategory(category);
         fullDto.setCreatedOn(DATE_TIME_FORMATTER.format(event.getCreatedOn()));
         fullDto.setDescription(event.getDescription());
         fullDto.setEventDate(DATE_TIME_FORMATTER.format(event.getEventDate()));
@@ -59,11 +62,34 @@ public class EventMapper {
         return fullDto;
     }
 
-    public static EventShortDto mapToShortDto(Event event) {
+    /**
+     * Копия полей события без категории, просмотров, заявок и комментариев.
+     */
+    public static EventFullDto copyFullDto(EventFullDto source) {
+        EventFullDto fullDto = new EventFullDto();
+
+        fullDto.setAnnotation(source.getAnnotation());
+        fullDto.setCreatedOn(source.getCreatedOn());
+        fullDto.setDescription(source.getDescription());
+        fullDto.setEventDate(source.getEventDate());
+        fullDto.setId(source.getId());
+        fullDto.setInitiator(source.getInitiator());
+        fullDto.setLocation(source.getLocation());
+        fullDto.setPaid(source.isPaid());
+        fullDto.setParticipantLimit(source.getParticipantLimit());
+        fullDto.setPublishedOn(source.getPublishedOn());
+        fullDto.setRequestModeration(source.getRequestModeration());
+        fullDto.setState(source.getState());
+        fullDto.setTitle(source.getTitle());
+
+        return fullDto;
+    }
+
+    public static EventShortDto mapToShortDto(Event event, CategoryDto category) {
         EventShortDto shortDto = new EventShortDto();
 
         shortDto.setAnnotation(event.getAnnotation());
-        shortDto.setCategory(CategoryMapper.mapToCategoryDto(event.getCategory()));
+        shortDto.setCategory(category);
         shortDto.setEventDate(DATE_TIME_FORMATTER.format(event.getEventDate()));
         shortDto.setId(event.getId());
         shortDto.setInitiator(userMapper.toShortDto(event.getInitiator()));
@@ -73,5 +99,24 @@ public class EventMapper {
         return shortDto;
     }
 
+    public static EventShortDto mapToShortDto(EventShortView view, CategoryDto category) {
+        EventShortDto shortDto = new EventShortDto();
+
+        shortDto.setAnnotation(view.annotation());
+        shortDto.setCategory(category);
+        shortDto.setEventDate(DATE_TIME_FORMATTER.format(view.eventDate()));
+        shortDto.setId(view.id());
+        if (view.initiatorId() != null) {
+            UserShortDto initiator = new UserShortDto();
+            initiator.setId(view.initiatorId());
+            initiator.setName(view.initiatorName());
+            shortDto.setInitiator(initiator);
+        }
+        shortDto.setPaid(view.paid());
+        shortDto.setTitle(view.title());
+
+        return shortDto;
+    }
+
 
 }
@@ -11,5 +11,6 @@ public interface ParticipationRequestMapper {
 
     @Mapping(target = "requester", source = "requester.id")
     @Mapping(target = "event", source = "event.id")
+    @Mapping(target = "ticket", ignore = true)
     ParticipationRequestDto mapToParticipationRequestDto(ParticipationRequest request);
 }
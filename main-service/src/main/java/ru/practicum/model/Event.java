@@ -44,6 +44,10 @@ public class Event {
     @Column(name = "participant_limit")
     private Integer participantLimit = 0;
 
+    // счётчик подтверждённых заявок меняется только атомарными update-ами в EventRepository
+    @Column(name = "confirmed_requests", insertable = false, updatable = false)
+    private Integer confirmedRequests = 0;
+
     @Column(name = "published_on")
     private LocalDateTime publishedOn;
 
@@ -57,6 +61,10 @@ public class Event {
     @Column(name = "title", length = 120)
     private String title;
 
+    // счётчик просмотров для сортировки, обновляется только синхронизацией со статистикой
+    @Column(name = "views", insertable = false, updatable = false)
+    private Long views = 0L;
+
     @OneToOne(fetch = FetchType.LAZY, cascade = {CascadeType.ALL})
     @JoinColumn(name = "location_id", nullable = false)
     private EventLocation location = new EventLocation();
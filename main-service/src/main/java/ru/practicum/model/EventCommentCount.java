@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record EventCommentCount(Long eventId, Long count) {
+}
@@ -0,0 +1,20 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка публичного поиска событий: только колонки, нужные для EventShortDto, просмотров и курсора страницы.
+ * Название категории берётся из CategoryCache.
+ */
+public record EventShortView(Long id,
+                             String annotation,
+                             Long categoryId,
+                             LocalDateTime eventDate,
+                             Long initiatorId,
+                             String initiatorName,
+                             boolean paid,
+                             String title,
+                             Integer confirmedRequests,
+                             Long views,
+                             LocalDateTime publishedOn) {
+}
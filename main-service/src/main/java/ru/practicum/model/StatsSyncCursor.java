@@ -0,0 +1,24 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Позиция синхронизации с сервисом статистики. Таблица пересоздаётся вместе с events, и синхронизация
+ * после перезапуска начинается с начала ленты изменений.
+ */
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stats_sync_cursors")
+public class StatsSyncCursor {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false, length = 100)
+    private String cursor;
+}
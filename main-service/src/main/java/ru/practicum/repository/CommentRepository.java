@@ -6,12 +6,14 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import ru.practicum.model.Comment;
 import ru.practicum.model.CommentStatus;
+import ru.practicum.model.EventCommentCount;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
-public interface CommentRepository extends JpaRepository<Comment, Long>, QuerydslPredicateExecutor<Comment> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, QuerydslPredicateExecutor<Comment>,
+        QuerydslSliceExecutor<Comment> {
 
     @Modifying
     @Query("update Comment c set c.status = :status where c.id in :ids")
@@ -19,7 +21,19 @@ public interface CommentRepository extends JpaRepository<Comment, Long>, Queryds
 
     List<Comment> findAllByIdIn(Collection<Long> ids);
 
-    List<Comment> findAllByEventIdIn(Collection<Long> ids);
+    /**
+     * Не больше limit последних комментариев каждого события: подзапрос с limit выполняется отдельно для каждого события.
+     */
+    @Query(value = """
+            select c.* from events e
+            cross join lateral (select * from comments cm where cm.event_id = e.id
+                                order by cm.created_at desc, cm.id desc limit :limit) c
+            where e.id in (:eventIds)
+            order by c.event_id, c.created_at desc, c.id desc
+            """, nativeQuery = true)
+    List<Comment> findRecentByEventIdIn(Collection<Long> eventIds, int limit);
 
-    List<Comment> findByEventId(Long id);
+    @Query("select new ru.practicum.model.EventCommentCount(c.event.id, count(c)) from Comment c " +
+           "where c.event.id in :eventIds group by c.event.id")
+    List<EventCommentCount> countByEventIdIn(Collection<Long> eventIds);
 }
@@ -7,14 +7,17 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
-    @EntityGraph(attributePaths = {"events.category", "events.initiator", "events.location"})
-    List<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+    // страница выбирается по id без fetch-join коллекции, иначе Hibernate применяет limit/offset в памяти
+    @Query("select c.id from Compilation c where c.pinned = :pinned")
+    List<Long> findIdsByPinned(Boolean pinned, Pageable pageable);
 
+    @Query("select c.id from Compilation c")
+    List<Long> findIds(Pageable pageable);
 
     @EntityGraph(attributePaths = {"events.category", "events.initiator", "events.location"})
-    @Query("select c from Compilation c")
-    List<Compilation> getCompilationList(Pageable pageable);
+    List<Compilation> findAllByIdInOrderByIdAsc(Collection<Long> ids);
 }
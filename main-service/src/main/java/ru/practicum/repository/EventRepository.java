@@ -1,22 +1,60 @@
 package ru.practicum.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import ru.practicum.model.Event;
 import ru.practicum.model.EventState;
 
 import java.util.Optional;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
-public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event> {
+public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event>,
+        QuerydslSliceExecutor<Event>, EventRepositoryCustom {
     Optional<Event> findByIdAndInitiatorId(Long eventId, Long userId);
 
-    Page<Event> findByInitiatorId(Long userId, Pageable pageable);
+    @EntityGraph(attributePaths = "initiator")
+    Slice<Event> findByInitiatorId(Long userId, Pageable pageable);
 
     Collection<Event> findAllByIdIn(Set<Long> eventIds);
 
     Optional<Event> findByIdAndState(Long eventId, EventState state);
+
+    List<Event> findAllByIdInAndState(Collection<Long> eventIds, EventState state);
+
+    /**
+     * Счётчик меняется в базе в обход загруженных событий, поэтому контекст сохраняется до update-а
+     * и очищается после него: иначе до конца транзакции читалось бы прежнее confirmedRequests.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Event e set e.confirmedRequests = e.confirmedRequests + 1 " +
+           "where e.id = :id and (coalesce(e.participantLimit, 0) = 0 or e.confirmedRequests < e.participantLimit)")
+    int incrementConfirmedRequests(Long id);
+
+    /**
+     * Блокирует строку события до конца транзакции и возвращает, сколько мест из count ещё свободно
+     * (0 и меньше — свободных мест нет). Занять их нужно через {@link #addConfirmedRequests(Long, int)}.
+     */
+    @Query(value = "select case when coalesce(participant_limit, 0) = 0 then :count " +
+                   "else least(:count, participant_limit - confirmed_requests) end " +
+                   "from events where id = :id for update", nativeQuery = true)
+    Optional<Integer> findFreeSeatsForUpdate(Long id, int count);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Event e set e.confirmedRequests = e.confirmedRequests + :count where e.id = :id")
+    void addConfirmedRequests(Long id, int count);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Event e set e.confirmedRequests = e.confirmedRequests - 1 where e.id = :id and e.confirmedRequests > 0")
+    void decrementConfirmedRequests(Long id);
+
+    @Modifying
+    @Query("update Event e set e.views = :views where e.id = :id")
+    void updateViews(Long id, Long views);
 }
@@ -0,0 +1,14 @@
+package ru.practicum.repository;
+
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.model.EventShortView;
+
+import java.util.List;
+
+public interface EventRepositoryCustom {
+    /**
+     * Страница событий сразу в виде строк для EventShortDto, без загрузки сущностей в контекст персистентности.
+     */
+    List<EventShortView> findShortViews(Predicate predicate, Pageable pageable);
+}
@@ -0,0 +1,43 @@
+package ru.practicum.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventShortView;
+import ru.practicum.model.QEvent;
+import ru.practicum.model.QUser;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EventRepositoryCustomImpl implements EventRepositoryCustom {
+    private final EntityManager entityManager;
+
+    @Override
+    public List<EventShortView> findShortViews(Predicate predicate, Pageable pageable) {
+        QEvent event = QEvent.event;
+        QUser initiator = QUser.user;
+
+        JPAQuery<EventShortView> query = new JPAQuery<Event>(entityManager)
+                .select(Projections.constructor(EventShortView.class,
+                        event.id, event.annotation, event.category.id, event.eventDate,
+                        initiator.id, initiator.name, event.paid, event.title, event.confirmedRequests,
+                        event.views, event.publishedOn))
+                .from(event)
+                .leftJoin(event.initiator, initiator)
+                .where(predicate);
+
+        new Querydsl(entityManager, new PathBuilder<>(Event.class, event.getMetadata()))
+                .applySorting(pageable.getSort(), query);
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset()).limit(pageable.getPageSize());
+        }
+        return query.fetch();
+    }
+}
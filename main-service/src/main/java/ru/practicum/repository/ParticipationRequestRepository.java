@@ -9,7 +9,6 @@ import ru.practicum.model.ParticipationRequestStatus;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 public interface ParticipationRequestRepository extends JpaRepository<ParticipationRequest, Long> {
     Optional<ParticipationRequest> getByIdAndRequester_Id(Long requestId, Long userId);
@@ -20,13 +19,10 @@ public interface ParticipationRequestRepository extends JpaRepository<Participat
 
     List<ParticipationRequest> findAllByEvent_Id(Long eventId);
 
-    int countByEventIdAndStatus(Long eventId, ParticipationRequestStatus requestStatus);
+    List<ParticipationRequest> findAllByEvent_IdAndRequester_IdIn(Long eventId, Collection<Long> requesterIds);
 
     @Modifying
     @Query("update ParticipationRequest r set r.status = :status where r.id in :ids")
     void updateStatus(ParticipationRequestStatus status, List<Long> ids);
 
-    @Query("select r.event.id, count(r.id) from ParticipationRequest r where r.status = :status and r.event.id in :ids group by r.event.id")
-    List<Object[]> getConfirmedRequestsCount(Set<Long> ids, ParticipationRequestStatus status);
-
 }
@@ -0,0 +1,14 @@
+package ru.practicum.repository;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Постраничная выборка по предикату без запроса count(*): читается на одну запись больше размера страницы,
+ * по ней определяется наличие следующей страницы. Перечисленные в fetch связи загружаются тем же запросом.
+ */
+public interface QuerydslSliceExecutor<T> {
+    Slice<T> findSlice(EntityPath<T> root, Predicate predicate, Pageable pageable, String... fetch);
+}
@@ -0,0 +1,43 @@
+package ru.practicum.repository;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.support.Querydsl;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class QuerydslSliceExecutorImpl<T> implements QuerydslSliceExecutor<T> {
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<T> findSlice(EntityPath<T> root, Predicate predicate, Pageable pageable, String... fetch) {
+        Querydsl querydsl = new Querydsl(entityManager, new PathBuilder<>(root.getType(), root.getMetadata()));
+        JPAQuery<T> query = new JPAQuery<T>(entityManager).select(root).from(root);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (fetch.length > 0) {
+            EntityGraph<? extends T> graph = entityManager.createEntityGraph(root.getType());
+            graph.addAttributeNodes(fetch);
+            query.setHint(AvailableHints.HINT_SPEC_FETCH_GRAPH, graph);
+        }
+        querydsl.applySorting(pageable.getSort(), query);
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset()).limit(pageable.getPageSize() + 1L);
+        }
+
+        List<T> content = query.fetch();
+        boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+}
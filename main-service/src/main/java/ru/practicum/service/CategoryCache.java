@@ -0,0 +1,83 @@
+package ru.practicum.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.CategoryDto;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.mapper.CategoryMapper;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.util.TransactionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Все категории в памяти: таблица маленькая и меняется редко, поэтому читается целиком при первом обращении
+ * и перечитывается после любого изменения.
+ */
+@Component
+public class CategoryCache {
+    private final CategoryRepository categoryRepository;
+    private final CategoryMapper mapper;
+    private final TransactionTemplate readOnlyTransaction;
+    // сброс во время загрузки не даёт сохранить снимок, прочитанный до изменения
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public CategoryCache(CategoryRepository categoryRepository,
+                         CategoryMapper mapper,
+                         PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        this.mapper = mapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public Optional<CategoryDto> find(Long catId) {
+        return Optional.ofNullable(snapshot().byId().get(catId));
+    }
+
+    public CategoryDto get(Long catId) {
+        return find(catId).orElseThrow(() -> new NotFoundException("Категория с id " + catId + " не найдена"));
+    }
+
+    /**
+     * Категории по возрастанию id.
+     */
+    public List<CategoryDto> getAll() {
+        return snapshot().ordered();
+    }
+
+    public void evict() {
+        TransactionUtils.afterCommit(() -> {
+            version.incrementAndGet();
+            snapshot = null;
+        });
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadedVersion = version.get();
+        List<CategoryDto> ordered = readOnlyTransaction.execute(status -> categoryRepository.findAll().stream()
+                .map(mapper::mapCategoryToCategoryDto)
+                .sorted((left, right) -> Long.compare(left.getId(), right.getId()))
+                .toList());
+        Snapshot loaded = new Snapshot(ordered, ordered.stream()
+                .collect(Collectors.toUnmodifiableMap(CategoryDto::getId, Function.identity())));
+        if (version.get() == loadedVersion) {
+            snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    private record Snapshot(List<CategoryDto> ordered, Map<Long, CategoryDto> byId) {
+    }
+}
@@ -2,8 +2,7 @@ package ru.practicum.service;
 
 import ru.practicum.dto.CategoryDto;
 import ru.practicum.dto.NewCategoryDto;
-
-import java.util.List;
+import ru.practicum.util.CursorPage;
 
 public interface CategoryService {
     CategoryDto addCategory(NewCategoryDto newCategoryDto);
@@ -12,7 +11,7 @@ public interface CategoryService {
 
     CategoryDto updateCategory(Long catId, CategoryDto categoryDto);
 
-    List<CategoryDto> getCategories(Integer from, Integer size);
+    CursorPage<CategoryDto> getCategories(Integer from, Integer size, String cursor);
 
     CategoryDto getCategory(Long catId);
 }
@@ -1,8 +1,8 @@
 package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.CategoryDto;
 import ru.practicum.dto.NewCategoryDto;
@@ -10,6 +10,8 @@ import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.CategoryMapper;
 import ru.practicum.model.Category;
 import ru.practicum.repository.CategoryRepository;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
 
 import java.util.List;
 
@@ -19,11 +21,15 @@ import java.util.List;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper mapper;
+    private final CategoryCache categoryCache;
+    private final CompilationCache compilationCache;
 
     @Override
     @Transactional
     public CategoryDto addCategory(NewCategoryDto newCategoryDto) {
-        return mapper.mapCategoryToCategoryDto(categoryRepository.save(mapper.mapNewCategoryDtoToCategory(newCategoryDto)));
+        CategoryDto category = mapper.mapCategoryToCategoryDto(categoryRepository.save(mapper.mapNewCategoryDtoToCategory(newCategoryDto)));
+        categoryCache.evict();
+        return category;
     }
 
     @Override
@@ -32,6 +38,7 @@ public class CategoryServiceImpl implements CategoryService {
         categoryRepository.findById(catId)
                 .orElseThrow(() -> new NotFoundException("Категория с id " + catId + " не найдена"));
         categoryRepository.deleteById(catId);
+        categoryCache.evict();
     }
 
     @Override
@@ -41,22 +48,34 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new NotFoundException("Категория с id " + catId + " не найдена"));
 
         category.setName(categoryDto.getName());
+        categoryCache.evict();
+        // название категории входит в события готовых ответов по подборкам
+        compilationCache.evictAll();
 
         return mapper.mapCategoryToCategoryDto(categoryRepository.save(category));
     }
 
     @Override
-    public List<CategoryDto> getCategories(Integer from, Integer size) {
-        PageRequest page = PageRequest.of(from / size, size);
-        return categoryRepository.findAll(page).stream()
-                .map(mapper::mapCategoryToCategoryDto)
-                .toList();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CursorPage<CategoryDto> getCategories(Integer from, Integer size, String cursor) {
+        List<CategoryDto> categories = categoryCache.getAll();
+        if (cursor != null) {
+            PageCursor after = PageCursor.decode(cursor);
+            List<CategoryDto> page = categories.stream()
+                    .filter(category -> after == null || category.getId() > after.id())
+                    .limit(size)
+                    .toList();
+            return CursorPage.of(page, size, category -> null, CategoryDto::getId);
+        }
+
+        int offset = Math.min(from / size * size, categories.size());
+        return CursorPage.of(categories.subList(offset, Math.min(offset + size, categories.size())), size,
+                category -> null, CategoryDto::getId);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CategoryDto getCategory(Long catId) {
-        Category category = categoryRepository.findById(catId)
-                .orElseThrow(() -> new NotFoundException("Категория с id " + catId + " не найдена"));
-        return mapper.mapCategoryToCategoryDto(category);
+        return categoryCache.get(catId);
     }
 }
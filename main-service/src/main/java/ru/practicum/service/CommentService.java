@@ -2,6 +2,8 @@ package ru.practicum.service;
 
 import ru.practicum.dto.*;
 
+import ru.practicum.util.CursorPage;
+
 import java.util.List;
 
 public interface CommentService {
@@ -10,7 +12,7 @@ public interface CommentService {
 
     CommentDto updateComment(Long userId, Long commentId, NewCommentDto commentDto);
 
-    List<CommentDtoAdmin> searchCommentsByAdmin(CommentSearchRequestAdmin param);
+    CursorPage<CommentDtoAdmin> searchCommentsByAdmin(CommentSearchRequestAdmin param);
 
     List<CommentDtoAdmin> changeCommentStatus(CommentStatusChangeRequest dto);
 
@@ -18,5 +20,7 @@ public interface CommentService {
 
     CommentDtoAdmin getCommentById(Long commentId);
 
+    CursorPage<CommentDto> getEventComments(Long eventId, String cursor, Integer size);
+
     void deleteCommentByUser(Long userId, Long commentId);
 }
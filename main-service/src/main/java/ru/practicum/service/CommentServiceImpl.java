@@ -5,6 +5,7 @@ import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.*;
@@ -15,11 +16,15 @@ import ru.practicum.model.*;
 import ru.practicum.repository.CommentRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.UserRepository;
+import ru.practicum.util.CursorPage;
 import ru.practicum.util.EventUtils;
+import ru.practicum.util.PageCursor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 @Slf4j
@@ -31,6 +36,7 @@ public class CommentServiceImpl implements CommentService {
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final CommentMapper commentMapper;
+    private final PublicEventCache publicEventCache;
 
 
     @Override
@@ -43,6 +49,7 @@ public class CommentServiceImpl implements CommentService {
                 .orElseThrow(() -> new NotFoundException("Событие с id: " + eventId + " не найдено или не опубликовано"));
 
         Comment comment = commentRepository.save(commentMapper.mapToComment(commentDto, user, event));
+        publicEventCache.evictCounters(eventId);
         return commentMapper.mapToCommentDto(comment);
     }
 
@@ -54,21 +61,32 @@ public class CommentServiceImpl implements CommentService {
         checkUserIsCommentAuthor(userId, comment);
         comment.setText(commentDto.getText());
         comment.setStatus(CommentStatus.PENDING);
+        publicEventCache.evictCounters(comment.getEvent().getId());
 
         return commentMapper.mapToCommentDto(commentRepository.save(comment));
     }
 
     @Override
-    public List<CommentDtoAdmin> searchCommentsByAdmin(CommentSearchRequestAdmin param) {
+    public CursorPage<CommentDtoAdmin> searchCommentsByAdmin(CommentSearchRequestAdmin param) {
         EventUtils.checkDates(param.getRangeStart(), param.getRangeEnd());
         Optional<Predicate> searchCriteriaOpt = getAdminCommentSearchCriteria(param);
-        PageRequest page = PageRequest.of(param.getFrom() / param.getSize(), param.getSize());
 
-        return searchCriteriaOpt.map(predicate -> commentRepository.findAll(predicate, page).getContent())
-                .orElseGet(() -> commentRepository.findAll(page).getContent())
-                .stream()
-                .map(commentMapper::mapToCommentDtoAdmin)
-                .toList();
+        if (param.getCursor() != null) {
+            BooleanBuilder predicate = new BooleanBuilder().and(searchCriteriaOpt.orElse(null));
+            PageCursor after = PageCursor.decode(param.getCursor());
+            if (after != null) {
+                predicate.and(QComment.comment.id.gt(after.id()));
+            }
+            List<Comment> comments = commentRepository.findBy(predicate,
+                    query -> query.sortBy(Sort.by("id")).limit(param.getSize()).all());
+            return CursorPage.of(comments, param.getSize(), comment -> null, Comment::getId)
+                    .map(commentMapper::mapToCommentDtoAdmin);
+        }
+
+        PageRequest page = PageRequest.of(param.getFrom() / param.getSize(), param.getSize(), Sort.by("id"));
+        return CursorPage.of(commentRepository.findSlice(QComment.comment, searchCriteriaOpt.orElse(null), page)
+                        .getContent(), param.getSize(), comment -> null, Comment::getId)
+                .map(commentMapper::mapToCommentDtoAdmin);
     }
 
     @Override
@@ -79,7 +97,9 @@ public class CommentServiceImpl implements CommentService {
             throw new ConditionsConflictException("Комментарий можно перевести в CONFIRMED или REJECTED. Передан статус " + status);
         }
         commentRepository.updateStatus(status, dto.getCommentIds());
-        return commentRepository.findAllByIdIn(dto.getCommentIds()).stream()
+        List<Comment> comments = commentRepository.findAllByIdIn(dto.getCommentIds());
+        publicEventCache.evictCounters(comments.stream().map(comment -> comment.getEvent().getId()).collect(Collectors.toSet()));
+        return comments.stream()
                 .map(commentMapper::mapToCommentDtoAdmin)
                 .toList();
     }
@@ -87,7 +107,10 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public void deleteCommentByAdmin(Long commentId) {
-        commentRepository.deleteById(commentId);
+        commentRepository.findById(commentId).ifPresent(comment -> {
+            commentRepository.delete(comment);
+            publicEventCache.evictCounters(comment.getEvent().getId());
+        });
     }
 
     @Override
@@ -97,13 +120,37 @@ public class CommentServiceImpl implements CommentService {
                 .orElseThrow(() -> new NotFoundException("Комментарий с id: " + commentId + " не найден"));
     }
 
+    @Override
+    public CursorPage<CommentDto> getEventComments(Long eventId, String cursor, Integer size) {
+        eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
+                .orElseThrow(() -> new NotFoundException("Событие с id: " + eventId + " не найдено или не опубликовано"));
+
+        QComment comment = QComment.comment;
+        BooleanBuilder predicate = new BooleanBuilder(comment.event.id.eq(eventId));
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            LocalDateTime created = after.sortValueAsDateTime();
+            predicate.and(comment.created.lt(created)
+                    .or(comment.created.eq(created).and(comment.id.lt(after.id()))));
+        }
+        // порядок совпадает с индексом comments (event_id, created_at, id), читается обратным проходом
+        List<Comment> comments = commentRepository.findBy(predicate, query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "created", "id"))
+                .project("author")
+                .limit(size)
+                .all());
+        return CursorPage.of(comments, size, Comment::getCreated, Comment::getId)
+                .map(commentMapper::mapToCommentDto);
+    }
+
     @Override
     @Transactional
     public void deleteCommentByUser(Long userId, Long commentId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new NotFoundException("Комментарий с id: " + commentId + " не найден"));
         checkUserIsCommentAuthor(userId, comment);
-        commentRepository.deleteById(commentId);
+        commentRepository.delete(comment);
+        publicEventCache.evictCounters(comment.getEvent().getId());
     }
 
     private void checkUserIsCommentAuthor(Long userId, Comment comment) {
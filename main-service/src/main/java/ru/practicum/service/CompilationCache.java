@@ -0,0 +1,88 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.CompilationDto;
+import ru.practicum.dto.EventShortDto;
+import ru.practicum.util.TransactionUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Готовые ответы по подборкам: отдельные подборки по id и страницы списка.
+ * Сбрасывается целиком после коммита любого изменения подборок или входящих в них событий.
+ * Просмотры и подтверждённые заявки событий обновляются не чаще, чем раз в expireAfterMs.
+ */
+@Component
+public class CompilationCache {
+    private final Cache<Long, CompilationDto> compilations;
+    private final Cache<PageKey, List<CompilationDto>> pages;
+    // события из закэшированных подборок: изменение других событий кэш не сбрасывает
+    private final Set<Long> eventIds = ConcurrentHashMap.newKeySet();
+
+    public CompilationCache(@Value("${compilations.cache.maximumSize:1000}") long maximumSize,
+                            @Value("${compilations.cache.expireAfterMs:60000}") long expireAfterMs,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        compilations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build();
+        pages = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, compilations, "compilations");
+            CaffeineCacheMetrics.monitor(registry, pages, "compilationPages");
+        });
+    }
+
+    public CompilationDto getCompilation(Long compId, Function<Long, CompilationDto> loader) {
+        return compilations.get(compId, id -> remember(List.of(loader.apply(id))).getFirst());
+    }
+
+    public List<CompilationDto> getPage(Boolean pinned, int from, int size, Supplier<List<CompilationDto>> loader) {
+        return pages.get(new PageKey(Boolean.TRUE.equals(pinned), from, size), key -> remember(loader.get()));
+    }
+
+    public void evictAll() {
+        TransactionUtils.afterCommit(() -> {
+            compilations.invalidateAll();
+            pages.invalidateAll();
+            eventIds.clear();
+        });
+    }
+
+    public void evictEvent(Long eventId) {
+        if (eventIds.contains(eventId)) {
+            evictAll();
+        }
+    }
+
+    private List<CompilationDto> remember(List<CompilationDto> dtos) {
+        dtos.stream()
+                .map(CompilationDto::getEvents)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .map(EventShortDto::getId)
+                .forEach(eventIds::add);
+        return dtos;
+    }
+
+    private record PageKey(boolean pinned, int from, int size) {
+    }
+}
@@ -1,10 +1,14 @@
 package ru.practicum.service;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.CompilationDto;
+import ru.practicum.dto.EventShortDto;
 import ru.practicum.dto.NewCompilationDto;
 import ru.practicum.dto.UpdateCompilationRequest;
 import ru.practicum.exception.NotFoundException;
@@ -16,15 +20,34 @@ import ru.practicum.repository.EventRepository;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository repository;
     private final EventRepository eventRepository;
     private final CompilationMapper mapper;
+    private final EventViewsCache eventViewsCache;
+    private final CompilationCache compilationCache;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public CompilationServiceImpl(CompilationRepository repository,
+                                  EventRepository eventRepository,
+                                  CompilationMapper mapper,
+                                  EventViewsCache eventViewsCache,
+                                  CompilationCache compilationCache,
+                                  PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.eventRepository = eventRepository;
+        this.mapper = mapper;
+        this.eventViewsCache = eventViewsCache;
+        this.compilationCache = compilationCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     @Override
     @Transactional
@@ -33,13 +56,16 @@ public class CompilationServiceImpl implements CompilationService {
             throw new NotFoundException("Подборка с id " + compId + " не найдена");
         }
         repository.deleteById(compId);
+        compilationCache.evictAll();
     }
 
     @Override
     @Transactional
     public CompilationDto saveCompilation(NewCompilationDto dto) {
         Set<Event> events = getEvents(dto.getEvents());
-        return mapper.mapCompilationToCompilationDto(repository.save(mapper.mapNewCompilationDtoToCompilation(dto, events)));
+        Compilation compilation = repository.save(mapper.mapNewCompilationDtoToCompilation(dto, events));
+        compilationCache.evictAll();
+        return toDtos(List.of(compilation)).getFirst();
     }
 
     @Override
@@ -48,28 +74,58 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation compilation = repository.findById(compId)
                 .orElseThrow(() -> new NotFoundException("Подборка с id " + compId + " не найдена"));
         updateCompilationFields(compilation, updateRequest);
-        return mapper.mapCompilationToCompilationDto(repository.save(compilation));
+        Compilation saved = repository.save(compilation);
+        compilationCache.evictAll();
+        return toDtos(List.of(saved)).getFirst();
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
-        PageRequest page = PageRequest.of(from / size, size);
-        if (pinned != null && pinned) {
-            return repository.findAllByPinned(true, page).stream()
-                    .map(mapper::mapCompilationToCompilationDto)
-                    .toList();
-        }
-
-        return repository.getCompilationList(page).stream()
-                .map(mapper::mapCompilationToCompilationDto)
-                .toList();
+        return compilationCache.getPage(pinned, from, size, () -> readOnlyTransaction.execute(status -> {
+            PageRequest page = PageRequest.of(from / size, size, Sort.by("id"));
+            List<Long> ids = pinned != null && pinned ? repository.findIdsByPinned(true, page) : repository.findIds(page);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return toDtos(repository.findAllByIdInOrderByIdAsc(ids));
+        }));
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CompilationDto getCompilationById(Long compId) {
-        Compilation compilation = repository.findById(compId)
-                .orElseThrow(() -> new NotFoundException("Подборка с id " + compId + " не найдена"));
-        return mapper.mapCompilationToCompilationDto(compilation);
+        return compilationCache.getCompilation(compId, id -> readOnlyTransaction.execute(status -> {
+            Compilation compilation = repository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Подборка с id " + id + " не найдена"));
+            return toDtos(List.of(compilation)).getFirst();
+        }));
+    }
+
+    /**
+     * Просмотры и подтверждённые заявки событий заполняются одним запросом на все подборки.
+     */
+    private List<CompilationDto> toDtos(List<Compilation> compilations) {
+        List<Event> events = compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .distinct()
+                .toList();
+        Map<Long, Long> viewsMap = eventViewsCache.getViews(events);
+
+        return compilations.stream()
+                .map(compilation -> {
+                    CompilationDto dto = mapper.mapCompilationToCompilationDto(compilation);
+                    dto.setEvents(compilation.getEvents().stream()
+                            .map(event -> {
+                                EventShortDto eventDto = mapper.mapEventToEventShortDto(event);
+                                eventDto.setViews(viewsMap.getOrDefault(event.getId(), 0L));
+                                eventDto.setConfirmedRequests(event.getConfirmedRequests().longValue());
+                                return eventDto;
+                            })
+                            .collect(Collectors.toSet()));
+                    return dto;
+                })
+                .toList();
     }
 
     private Set<Event> getEvents(Set<Long> eventIds) {
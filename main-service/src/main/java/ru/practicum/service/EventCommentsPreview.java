@@ -0,0 +1,53 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.CommentDto;
+import ru.practicum.mapper.CommentMapper;
+import ru.practicum.model.EventCommentCount;
+import ru.practicum.repository.CommentRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Комментарии, встраиваемые в списки событий: не больше limit последних комментариев на событие
+ * и общее их количество. Полный список комментариев события отдаётся постранично отдельно.
+ */
+@Component
+public class EventCommentsPreview {
+    private final CommentRepository commentRepository;
+    private final CommentMapper commentMapper;
+    private final int limit;
+
+    public EventCommentsPreview(CommentRepository commentRepository,
+                                CommentMapper commentMapper,
+                                @Value("${comments.embedded.limit:10}") int limit) {
+        this.commentRepository = commentRepository;
+        this.commentMapper = commentMapper;
+        this.limit = limit;
+    }
+
+    public Map<Long, List<CommentDto>> getRecentComments(Collection<Long> eventIds) {
+        if (eventIds.isEmpty() || limit <= 0) {
+            return Map.of();
+        }
+        Map<Long, List<CommentDto>> commentsMap = new HashMap<>();
+        commentRepository.findRecentByEventIdIn(eventIds, limit).forEach(comment ->
+                commentsMap.computeIfAbsent(comment.getEvent().getId(), eventId -> new ArrayList<>())
+                        .add(commentMapper.mapToCommentDto(comment)));
+        return commentsMap;
+    }
+
+    public Map<Long, Long> countComments(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        return commentRepository.countByEventIdIn(eventIds).stream()
+                .collect(Collectors.toMap(EventCommentCount::eventId, EventCommentCount::count));
+    }
+}
@@ -1,8 +1,7 @@
 package ru.practicum.service;
 
 import ru.practicum.dto.*;
-
-import java.util.List;
+import ru.practicum.util.CursorPage;
 
 public interface EventService {
 
@@ -16,9 +15,9 @@ public interface EventService {
 
     EventFullDto getPublicEvent(Long eventId);
 
-    List<EventShortDto> getAllByUser(Long userId, Integer from, Integer size);
+    CursorPage<EventShortDto> getAllByUser(Long userId, Integer from, Integer size, String cursor);
 
-    List<EventFullDto> searchForAdmin(EventSearchRequestAdmin param);
+    CursorPage<EventFullDto> searchForAdmin(EventSearchRequestAdmin param);
 
-    List<EventShortDto> searchForUser(EventSearchRequestUser param);
+    CursorPage<EventShortDto> searchForUser(EventSearchRequestUser param);
 }
@@ -1,25 +1,29 @@
 package ru.practicum.service;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.querydsl.QPageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.StatsClient;
-import ru.practicum.ViewStatsDto;
 import ru.practicum.dto.*;
 import ru.practicum.exception.NotFoundException;
-import ru.practicum.mapper.CommentMapper;
 import ru.practicum.mapper.EventMapper;
 import ru.practicum.mapper.LocationMapper;
 import ru.practicum.model.Category;
 import ru.practicum.model.Event;
-import ru.practicum.model.ParticipationRequestStatus;
+import ru.practicum.model.EventShortView;
+import ru.practicum.model.QEvent;
 import ru.practicum.model.User;
 import ru.practicum.repository.*;
+import ru.practicum.util.CursorPage;
 import ru.practicum.util.EventUtils;
+import ru.practicum.util.PageCursor;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -34,13 +38,19 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class EventServiceImpl implements EventService {
     public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    // связи, которые читают мапперы в EventShortDto и EventFullDto; загружаются тем же запросом, что и события,
+    // категории берутся из CategoryCache
+    private static final String[] SHORT_DTO_FETCH = {"initiator"};
+    private static final String[] FULL_DTO_FETCH = {"initiator", "location"};
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final ParticipationRequestRepository requestRepository;
-    private final CommentRepository commentRepository;
-    private final CommentMapper commentMapper;
-    private final StatsClient statsClient;
+    private final EventViewsCache eventViewsCache;
+    private final EventCommentsPreview eventCommentsPreview;
+    private final CompilationCache compilationCache;
+    private final CategoryCache categoryCache;
+    private final PublicEventCache publicEventCache;
+    private final SearchTotalCounts searchTotalCounts;
     private final LocationMapper locationMapper;
 
     @Override
@@ -49,13 +59,14 @@ public class EventServiceImpl implements EventService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
 
-        Category category = categoryRepository.findById(newEventDto.getCategory())
+        categoryCache.find(newEventDto.getCategory())
                 .orElseThrow(() -> new NotFoundException("Категория с id = " + newEventDto.getCategory() + " не найдена"));
+        Category category = categoryRepository.getReferenceById(newEventDto.getCategory());
 
         LocalDateTime eventDate = LocalDateTime.parse(newEventDto.getEventDate(), DATE_TIME_FORMATTER);
         EventUtils.checkEventDateIsValid(eventDate);
         Event savedEvent = eventRepository.save(EventMapper.mapToEvent(newEventDto, user, category, eventDate));
-        EventFullDto dto = EventMapper.mapToFullDto(savedEvent);
+        EventFullDto dto = EventMapper.mapToFullDto(savedEvent, getCategoryDto(savedEvent));
         dto.setViews(0L);
         dto.setConfirmedRequests(0L);
         return dto;
@@ -68,8 +79,10 @@ public class EventServiceImpl implements EventService {
                 .orElseThrow(() -> new NotFoundException("Событие с id " + eventId + " не найдено"));
         Optional.ofNullable(request.getCategory()).ifPresent(id -> event.setCategory(getCategory(id)));
         EventUtils.updateEventFieldsFromUserRequest(request, event);
-        EventFullDto dto = EventMapper.mapToFullDto(eventRepository.save(event));
+        EventFullDto dto = EventMapper.mapToFullDto(eventRepository.save(event), getCategoryDto(event));
         setEventFullDtoFields(dto, event);
+        compilationCache.evictEvent(eventId);
+        publicEventCache.evictEvent(eventId);
 
         return dto;
     }
@@ -81,8 +94,10 @@ public class EventServiceImpl implements EventService {
         Optional.ofNullable(request.getCategory()).ifPresent(id -> event.setCategory(getCategory(id)));
         Optional.ofNullable(request.getLocation()).ifPresent(loc -> event.setLocation(locationMapper.mapLocationToEventLocation(loc)));
         EventUtils.updateEventFieldsFromAdminRequest(request, event);
-        EventFullDto dto = EventMapper.mapToFullDto(eventRepository.save(event));
+        EventFullDto dto = EventMapper.mapToFullDto(eventRepository.save(event), getCategoryDto(event));
         setEventFullDtoFields(dto, event);
+        compilationCache.evictEvent(eventId);
+        publicEventCache.evictEvent(eventId);
 
         return dto;
     }
@@ -91,89 +106,141 @@ public class EventServiceImpl implements EventService {
     public EventFullDto getByUser(Long userId, Long eventId) {
         Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Событие с id " + eventId + " не найдено"));
-        EventFullDto dto = EventMapper.mapToFullDto(event);
+        EventFullDto dto = EventMapper.mapToFullDto(event, getCategoryDto(event));
         setEventFullDtoFields(dto, event);
 
         return dto;
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventFullDto getPublicEvent(Long eventId) {
-        Event event = getEvent(eventId);
-        EventUtils.checkEventIsPublished(event);
-        EventFullDto dto = EventMapper.mapToFullDto(event);
-        setEventFullDtoFields(dto, event);
+        PublicEventCache.EventSnapshot snapshot = publicEventCache.getEvent(eventId, this::loadPublicEvent);
+        PublicEventCache.EventCounters counters = publicEventCache.getCounters(eventId, this::loadCounters);
+        EventFullDto dto = EventMapper.copyFullDto(snapshot.event());
+        dto.setCategory(snapshot.categoryId() == null ? null : categoryCache.get(snapshot.categoryId()));
+        dto.setViews(snapshot.publishedOn() == null ? 0L
+                : eventViewsCache.getViewsSince(Map.of(eventId, snapshot.publishedOn())).getOrDefault(eventId, 0L));
+        dto.setConfirmedRequests(counters.confirmedRequests());
+        dto.setComments(counters.comments());
+        dto.setCommentsCount(counters.commentsCount());
 
         return dto;
     }
 
     @Override
-    public List<EventShortDto> getAllByUser(Long userId, Integer from, Integer size) {
-        Pageable pageable = PageRequest.of(from / size, size);
-        List<Event> events = eventRepository.findByInitiatorId(userId, pageable).getContent();
-        Map<Long, Long> viewsMap = getEventsViews(events);
+    public CursorPage<EventShortDto> getAllByUser(Long userId, Integer from, Integer size, String cursor) {
+        CursorPage<Event> page;
+        if (cursor != null) {
+            page = findEventsAfter(QEvent.event.initiator.id.eq(userId), PageCursor.decode(cursor), size, SHORT_DTO_FETCH);
+        } else {
+            Pageable pageable = PageRequest.of(from / size, size, Sort.by("id"));
+            page = CursorPage.of(eventRepository.findByInitiatorId(userId, pageable).getContent(), size,
+                    event -> null, Event::getId);
+        }
+        List<Event> events = page.content();
+        Map<Long, Long> viewsMap = eventViewsCache.getViews(events);
         Set<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toSet());
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequests(eventIds);
-        Map<Long, List<CommentDto>> commentsMap = getCommentsMap(eventIds);
+        Map<Long, List<CommentDto>> commentsMap = eventCommentsPreview.getRecentComments(eventIds);
+        Map<Long, Long> commentsCounts = eventCommentsPreview.countComments(eventIds);
 
-        return events.stream()
-                .map(event -> {
-                    EventShortDto dto = EventMapper.mapToShortDto(event);
-                    dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L));
-                    dto.setConfirmedRequests(confirmedRequestsMap.getOrDefault(dto.getId(), 0L));
-                    dto.setComments(commentsMap.getOrDefault(dto.getId(), Collections.emptyList()));
-                    return dto;
-                })
-                .toList();
+        return page.map(event -> {
+            EventShortDto dto = EventMapper.mapToShortDto(event, getCategoryDto(event));
+            dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L));
+            dto.setConfirmedRequests(event.getConfirmedRequests().longValue());
+            dto.setComments(commentsMap.getOrDefault(dto.getId(), Collections.emptyList()));
+            dto.setCommentsCount(commentsCounts.getOrDefault(dto.getId(), 0L));
+            return dto;
+        });
     }
 
     @Override
-    public List<EventFullDto> searchForAdmin(EventSearchRequestAdmin param) {
+    public CursorPage<EventFullDto> searchForAdmin(EventSearchRequestAdmin param) {
         EventUtils.checkDates(param.getRangeStart(), param.getRangeEnd());
-        PageRequest page = PageRequest.of(param.getFrom() / param.getSize(), param.getSize());
         Optional<Predicate> searchCriteriaOpt = EventUtils.getAdminSearchCriteria(param);
-        List<Event> events = searchCriteriaOpt.map(predicate -> eventRepository.findAll(predicate, page).getContent())
-                .orElseGet(() -> eventRepository.findAll(page).getContent());
+        CursorPage<Event> page;
+        if (param.getCursor() != null) {
+            page = findEventsAfter(searchCriteriaOpt.orElse(null), PageCursor.decode(param.getCursor()), param.getSize(),
+                    FULL_DTO_FETCH);
+        } else {
+            PageRequest pageRequest = PageRequest.of(param.getFrom() / param.getSize(), param.getSize(), Sort.by("id"));
+            page = CursorPage.of(eventRepository.findSlice(QEvent.event, searchCriteriaOpt.orElse(null), pageRequest, FULL_DTO_FETCH)
+                    .getContent(), param.getSize(), event -> null, Event::getId);
+        }
+        if (param.isWithTotal()) {
+            page = page.withTotal(searchTotalCounts.get(EventUtils.getAdminSearchCountKey(param),
+                    () -> searchCriteriaOpt.map(eventRepository::count).orElseGet(eventRepository::count)));
+        }
+        List<Event> events = page.content();
         Set<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toSet());
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequests(eventIds);
-        Map<Long, Long> viewsMap = getEventsViews(events);
-        Map<Long, List<CommentDto>> commentsMap = getCommentsMap(eventIds);
+        Map<Long, Long> viewsMap = eventViewsCache.getViews(events);
+        Map<Long, List<CommentDto>> commentsMap = eventCommentsPreview.getRecentComments(eventIds);
+        Map<Long, Long> commentsCounts = eventCommentsPreview.countComments(eventIds);
 
-        return events.stream()
-                .map(event -> {
-                    EventFullDto dto = EventMapper.mapToFullDto(event);
-                    dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L));
-                    dto.setConfirmedRequests(confirmedRequestsMap.getOrDefault(dto.getId(), 0L));
-                    dto.setComments(commentsMap.getOrDefault(dto.getId(), Collections.emptyList()));
-                    return dto;
-                })
-                .toList();
+        return page.map(event -> {
+            EventFullDto dto = EventMapper.mapToFullDto(event, getCategoryDto(event));
+            dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L));
+            dto.setConfirmedRequests(event.getConfirmedRequests().longValue());
+            dto.setComments(commentsMap.getOrDefault(dto.getId(), Collections.emptyList()));
+            dto.setCommentsCount(commentsCounts.getOrDefault(dto.getId(), 0L));
+            return dto;
+        });
     }
 
     @Override
-    public List<EventShortDto> searchForUser(EventSearchRequestUser param) {
+    public CursorPage<EventShortDto> searchForUser(EventSearchRequestUser param) {
         EventUtils.checkDates(param.getRangeStart(), param.getRangeEnd());
-        PageRequest page = EventUtils.getUserSearchPage(param);
         Predicate searchCriteria = EventUtils.getUserSearchCriteria(param);
-        List<Event> events = eventRepository.findAll(searchCriteria, page).getContent();
-        Set<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toSet());
-        Map<Long, Long> viewsMap = getEventsViews(events);
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequests(eventIds);
-        Map<Long, List<CommentDto>> commentsMap = getCommentsMap(eventIds);
-
-        List<EventShortDto> dtos = new ArrayList<>();
-        for (Event event : events) {
-            long requestsCount = confirmedRequestsMap.getOrDefault(event.getId(), 0L);
-            if (param.getOnlyAvailable() && event.getParticipantLimit() > 0 && requestsCount == event.getParticipantLimit()) {
-                continue;
+        CursorPage<EventShortView> page;
+        if (param.getCursor() != null) {
+            BooleanBuilder predicate = new BooleanBuilder(searchCriteria);
+            PageCursor after = PageCursor.decode(param.getCursor());
+            if (after != null) {
+                predicate.and(EventUtils.getUserSearchAfter(param, after));
             }
-            EventShortDto dto = EventMapper.mapToShortDto(event);
-            dto.setConfirmedRequests(requestsCount);
-            dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L));
+            List<EventShortView> found = eventRepository.findShortViews(predicate,
+                    QPageRequest.of(0, param.getSize(), EventUtils.getUserSearchKeysetSort(param)));
+            page = CursorPage.of(found, param.getSize(), event -> EventUtils.getUserSearchSortValue(param, event),
+                    EventShortView::id);
+        } else if (EventUtils.isRelevanceSort(param)) {
+            page = CursorPage.of(eventRepository.findShortViews(searchCriteria, EventUtils.getUserSearchPage(param)));
+        } else {
+            page = CursorPage.of(eventRepository.findShortViews(searchCriteria, EventUtils.getUserSearchPage(param)),
+                    param.getSize(), event -> EventUtils.getUserSearchSortValue(param, event), EventShortView::id);
+        }
+        if (param.isWithTotal()) {
+            page = page.withTotal(searchTotalCounts.get(EventUtils.getUserSearchCountKey(param),
+                    () -> eventRepository.count(searchCriteria)));
+        }
+        Map<Long, LocalDateTime> publishedOnById = new HashMap<>();
+        page.content().forEach(event -> publishedOnById.put(event.id(), event.publishedOn()));
+        // при сортировке VIEWS показываются те же синхронизированные просмотры, по которым упорядочена страница
+        boolean viewsSort = EventUtils.isViewsSort(param);
+        Map<Long, Long> viewsMap = viewsSort ? Map.of() : eventViewsCache.getViewsSince(publishedOnById);
+        Map<Long, List<CommentDto>> commentsMap = eventCommentsPreview.getRecentComments(publishedOnById.keySet());
+        Map<Long, Long> commentsCounts = eventCommentsPreview.countComments(publishedOnById.keySet());
+
+        return page.map(event -> {
+            EventShortDto dto = EventMapper.mapToShortDto(event,
+                    event.categoryId() == null ? null : categoryCache.get(event.categoryId()));
+            dto.setConfirmedRequests(event.confirmedRequests().longValue());
+            dto.setViews(viewsSort ? event.views() : viewsMap.getOrDefault(dto.getId(), 0L));
             dto.setComments(commentsMap.getOrDefault(dto.getId(), Collections.emptyList()));
-            dtos.add(dto);
+            dto.setCommentsCount(commentsCounts.getOrDefault(dto.getId(), 0L));
+            return dto;
+        });
+    }
+
+    /**
+     * Страница событий по возрастанию id, начиная после курсора. Запрос без offset и без подсчёта общего количества.
+     */
+    private CursorPage<Event> findEventsAfter(Predicate criteria, PageCursor after, int size, String[] fetch) {
+        BooleanBuilder predicate = new BooleanBuilder().and(criteria);
+        if (after != null) {
+            predicate.and(QEvent.event.id.gt(after.id()));
         }
-        return dtos;
+        List<Event> events = eventRepository.findBy(predicate, query -> query.sortBy(Sort.by("id")).project(fetch).limit(size).all());
+        return CursorPage.of(events, size, event -> null, Event::getId);
     }
 
     private Event getEvent(Long eventId) {
@@ -181,79 +248,38 @@ public class EventServiceImpl implements EventService {
                 .orElseThrow(() -> new NotFoundException("Событие с id " + eventId + " не найдено"));
     }
 
-    private Map<Long, List<CommentDto>> getCommentsMap(Set<Long> eventIds) {
-        if (eventIds == null || eventIds.isEmpty()) {
-            return Collections.emptyMap();
-        }
-        Map<Long, List<CommentDto>> commentsMap = new HashMap<>();
-        commentRepository.findAllByEventIdIn(eventIds).forEach(comment -> {
-            commentsMap.computeIfAbsent(comment.getEvent().getId(), eventId -> new ArrayList<>())
-                    .add(commentMapper.mapToCommentDto(comment));
-        });
-        return commentsMap;
+    private PublicEventCache.EventSnapshot loadPublicEvent(Long eventId) {
+        Event event = getEvent(eventId);
+        EventUtils.checkEventIsPublished(event);
+        return new PublicEventCache.EventSnapshot(EventMapper.mapToFullDto(event, null),
+                event.getCategory() == null ? null : event.getCategory().getId(), event.getPublishedOn());
     }
 
-    private Long getEventViews(Event event) {
-        if (event.getPublishedOn() == null) {
-            return 0L;
-        }
-
-        LocalDateTime start = event.getPublishedOn();
-        LocalDateTime end = LocalDateTime.now();
-        List<String> uris = List.of("/events/" + event.getId());
-
-        return statsClient.getStats(start, end, uris, true)
-                .stream()
-                .findFirst()
-                .map(stats -> stats.getHits() != null ? stats.getHits() : 0L)
+    private PublicEventCache.EventCounters loadCounters(Long eventId) {
+        Long confirmedRequests = eventRepository.findById(eventId)
+                .map(event -> event.getConfirmedRequests().longValue())
                 .orElse(0L);
-    }
-
-    private Map<Long, Long> getEventsViews(List<Event> events) {
-        List<String> uris = new ArrayList<>();
-        LocalDateTime start = LocalDateTime.now();
-        LocalDateTime end = start;
-        for (Event event : events) {
-            uris.add("/events/" + event.getId());
-            if (event.getPublishedOn() != null && start.isAfter(event.getPublishedOn())) {
-                start = event.getPublishedOn();
-            }
-        }
-        if (start.isEqual(end)) {
-            return Collections.emptyMap();
-        }
-
-        List<ViewStatsDto> viewDtos = statsClient.getStats(start, end, uris, true);
-        Map<Long, Long> viewsMap = new HashMap<>();
-        for (ViewStatsDto view : viewDtos) {
-            String[] parts = view.getUri().split("/");
-            if (parts.length == 3) {
-                Long eventId = Long.parseLong(parts[parts.length - 1]);
-                viewsMap.put(eventId, view.getHits());
-            }
-        }
-        return viewsMap;
+        Set<Long> eventIds = Set.of(eventId);
+        return new PublicEventCache.EventCounters(confirmedRequests,
+                List.copyOf(eventCommentsPreview.getRecentComments(eventIds).getOrDefault(eventId, Collections.emptyList())),
+                eventCommentsPreview.countComments(eventIds).getOrDefault(eventId, 0L));
     }
 
     private void setEventFullDtoFields(EventFullDto dto, Event event) {
-        dto.setViews(getEventViews(event));
-        dto.setConfirmedRequests((long) requestRepository.countByEventIdAndStatus(event.getId(), ParticipationRequestStatus.CONFIRMED));
-        dto.setComments(getCommentsDtoList(event.getId()));
-    }
-
-    private List<CommentDto> getCommentsDtoList(Long eventId) {
-        return commentRepository.findByEventId(eventId).stream()
-                .map(commentMapper::mapToCommentDto)
-                .toList();
+        dto.setViews(eventViewsCache.getViews(event));
+        dto.setConfirmedRequests(event.getConfirmedRequests().longValue());
+        // остальные комментарии доступны постранично через GET /events/{id}/comments
+        Set<Long> eventIds = Set.of(event.getId());
+        dto.setComments(eventCommentsPreview.getRecentComments(eventIds).getOrDefault(event.getId(), Collections.emptyList()));
+        dto.setCommentsCount(eventCommentsPreview.countComments(eventIds).getOrDefault(event.getId(), 0L));
     }
 
-    private Map<Long, Long> getConfirmedRequests(Set<Long> eventIds) {
-        return requestRepository.getConfirmedRequestsCount(eventIds, ParticipationRequestStatus.CONFIRMED).stream()
-                .collect(Collectors.toMap(object -> (Long) object[0], object -> (Long) object[1]));
+    private CategoryDto getCategoryDto(Event event) {
+        return event.getCategory() == null ? null : categoryCache.get(event.getCategory().getId());
     }
 
     private Category getCategory(Long id) {
-        return categoryRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Категория с id " + id + " не найдена"));
+        categoryCache.get(id);
+        return categoryRepository.getReferenceById(id);
     }
 }
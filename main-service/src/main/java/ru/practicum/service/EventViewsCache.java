@@ -0,0 +1,120 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsClient;
+import ru.practicum.UriSinceDto;
+import ru.practicum.model.Event;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Количество просмотров событий из сервиса статистики с кэшем по id события.
+ * Устаревшее значение отдаётся сразу и обновляется в фоне, по истечении expireAfterMs запись удаляется.
+ * По умолчанию кэш выключен и каждый вызов идёт в сервис статистики; включается statsServer.viewsCache.enabled=true.
+ */
+@Slf4j
+@Component
+public class EventViewsCache {
+    private final StatsClient statsClient;
+    private final LoadingCache<EventViewsKey, Long> cache;
+
+    public EventViewsCache(StatsClient statsClient,
+                           @Value("${statsServer.viewsCache.enabled:false}") boolean enabled,
+                           @Value("${statsServer.viewsCache.maximumSize:10000}") long maximumSize,
+                           @Value("${statsServer.viewsCache.refreshAfterMs:5000}") long refreshAfterMs,
+                           @Value("${statsServer.viewsCache.expireAfterMs:60000}") long expireAfterMs,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.statsClient = statsClient;
+        if (!enabled) {
+            cache = null;
+            return;
+        }
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterMs))
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build(new ViewsLoader());
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "eventViews"));
+    }
+
+    public Long getViews(Event event) {
+        return getViews(List.of(event)).getOrDefault(event.getId(), 0L);
+    }
+
+    public Map<Long, Long> getViews(List<Event> events) {
+        Map<Long, LocalDateTime> publishedOnById = new HashMap<>();
+        events.stream()
+                .filter(event -> event.getPublishedOn() != null)
+                .forEach(event -> publishedOnById.put(event.getId(), event.getPublishedOn()));
+        return getViewsSince(publishedOnById);
+    }
+
+    /**
+     * Просмотры по id событий с датами их публикации, для выборок без загрузки сущностей.
+     */
+    public Map<Long, Long> getViewsSince(Map<Long, LocalDateTime> publishedOnById) {
+        List<EventViewsKey> keys = publishedOnById.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .map(entry -> new EventViewsKey(entry.getKey(), entry.getValue()))
+                .toList();
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<EventViewsKey, Long> views = cache == null ? loadViews(keys) : cache.getAll(keys);
+        Map<Long, Long> viewsMap = new HashMap<>();
+        views.forEach((key, hits) -> viewsMap.put(key.eventId(), hits));
+        return viewsMap;
+    }
+
+    private Map<EventViewsKey, Long> loadViews(Collection<? extends EventViewsKey> keys) {
+        Map<String, EventViewsKey> keysByUri = new HashMap<>();
+        for (EventViewsKey key : keys) {
+            keysByUri.put("/events/" + key.eventId(), key);
+        }
+        List<UriSinceDto> uris = keysByUri.entrySet().stream()
+                .map(entry -> new UriSinceDto(entry.getKey(), entry.getValue().publishedOn()))
+                .toList();
+
+        Map<String, Long> hitsByUri = statsClient.getStatsByUri(uris, LocalDateTime.now(), true);
+        // для событий без просмотров тоже кэшируется значение, иначе они будут запрашиваться каждый раз
+        Map<EventViewsKey, Long> views = new HashMap<>();
+        keysByUri.forEach((uri, key) -> views.put(key, hitsByUri == null ? 0L : hitsByUri.getOrDefault(uri, 0L)));
+        return views;
+    }
+
+    /**
+     * Дата публикации входит в ключ, так как задаёт начало интервала при загрузке.
+     */
+    private record EventViewsKey(Long eventId, LocalDateTime publishedOn) {
+    }
+
+    private class ViewsLoader implements CacheLoader<EventViewsKey, Long> {
+        @Override
+        public Long load(EventViewsKey key) {
+            return loadViews(Set.of(key)).get(key);
+        }
+
+        @Override
+        public Map<EventViewsKey, Long> loadAll(Set<? extends EventViewsKey> keys) {
+            log.debug("Загрузка просмотров событий из сервиса статистики, количество={}", keys.size());
+            return loadViews(keys);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.StatsClient;
+import ru.practicum.UriChangesDto;
+import ru.practicum.UriSinceDto;
+import ru.practicum.model.EventState;
+import ru.practicum.model.StatsSyncCursor;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.StatsSyncCursorRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Синхронизация колонки events.views со статистикой. Из сервиса статистики забираются только uri,
+ * у которых появились новые хиты, и для соответствующих событий пересчитывается число просмотров.
+ * Курсор сохраняется в той же транзакции, что и просмотры. Пересчёт идемпотентен, поэтому повтор пачки
+ * после сбоя между запросом к статистике и фиксацией ничего не портит.
+ */
+@Slf4j
+@Component
+public class EventViewsSync {
+    private static final Pattern EVENT_URI_PATTERN = Pattern.compile("/events/(\\d+)");
+    private final StatsClient statsClient;
+    private final EventRepository eventRepository;
+    private final StatsSyncCursorRepository cursorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String app;
+    private final int batchSize;
+
+    public EventViewsSync(StatsClient statsClient,
+                          EventRepository eventRepository,
+                          StatsSyncCursorRepository cursorRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${statsServer.viewsSync.enabled:true}") boolean enabled,
+                          @Value("${statsServer.viewsSync.app:main-service}") String app,
+                          @Value("${statsServer.viewsSync.batchSize:500}") int batchSize) {
+        this.statsClient = statsClient;
+        this.eventRepository = eventRepository;
+        this.cursorRepository = cursorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.app = app;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${statsServer.viewsSync.delayMs:10000}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        String cursor = null;
+        try {
+            cursor = cursorRepository.findById(app).map(StatsSyncCursor::getCursor).orElse(null);
+            UriChangesDto changes;
+            do {
+                changes = statsClient.getUriChanges(app, cursor, batchSize);
+                if (changes == null) {
+                    return;
+                }
+                updateViews(changes);
+                cursor = changes.getCursor();
+            } while (changes.getUris().size() == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось синхронизировать просмотры событий, cursor={}: {}", cursor, e.getMessage());
+        }
+    }
+
+    private void updateViews(UriChangesDto changes) {
+        if (changes.getUris().isEmpty()) {
+            return;
+        }
+        List<Long> eventIds = changes.getUris().stream()
+                .map(EVENT_URI_PATTERN::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> Long.valueOf(matcher.group(1)))
+                .toList();
+        Map<String, Long> eventIdsByUri = new HashMap<>();
+        List<UriSinceDto> uriSinces = eventIds.isEmpty() ? List.of()
+                : eventRepository.findAllByIdInAndState(eventIds, EventState.PUBLISHED).stream()
+                .filter(event -> event.getPublishedOn() != null)
+                .map(event -> {
+                    String uri = "/events/" + event.getId();
+                    eventIdsByUri.put(uri, event.getId());
+                    return new UriSinceDto(uri, event.getPublishedOn());
+                })
+                .toList();
+
+        Map<String, Long> hitsByUri = uriSinces.isEmpty() ? Map.of()
+                : statsClient.getStatsByUri(uriSinces, LocalDateTime.now(), true);
+        transactionTemplate.executeWithoutResult(status -> {
+            eventIdsByUri.forEach((uri, eventId) ->
+                    eventRepository.updateViews(eventId, hitsByUri == null ? 0L : hitsByUri.getOrDefault(uri, 0L)));
+            if (changes.getCursor() != null) {
+                cursorRepository.save(new StatsSyncCursor(app, changes.getCursor()));
+            }
+        });
+        log.debug("Обновлены просмотры событий, количество={}", eventIdsByUri.size());
+    }
+}
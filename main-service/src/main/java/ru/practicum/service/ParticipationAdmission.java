@@ -0,0 +1,192 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.ParticipationRequestDto;
+import ru.practicum.exception.ConditionsConflictException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Очередь регистраций на события: заявки копятся в очереди своего события и обрабатываются пачками,
+ * поэтому на всплеск заявок приходится одна транзакция на пачку, а не на каждую заявку.
+ * Пачки одного события обрабатываются строго по очереди, разные события - параллельно в writers потоках,
+ * так что медленное событие задерживает только свой поток. Очередь события удаляется, как только опустеет.
+ * В очередь попадают только заявки на «горячие» события: пока на событие одновременно регистрируются меньше
+ * hotThreshold пользователей и его очередь пуста, заявка выполняется сразу в потоке запроса.
+ */
+@Slf4j
+public class ParticipationAdmission {
+    private final BiFunction<Long, List<Long>, List<Decision>> batchHandler;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int hotThreshold;
+    private final Map<Long, EventQueue> queues = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> directRegistrations = new ConcurrentHashMap<>();
+    private final Cache<String, Admission> tickets;
+    private final AtomicInteger writerNumber = new AtomicInteger();
+    private final ExecutorService writers;
+
+    public ParticipationAdmission(BiFunction<Long, List<Long>, List<Decision>> batchHandler,
+                                  int queueCapacity,
+                                  int batchSize,
+                                  int hotThreshold,
+                                  long ticketTtlMs,
+                                  int writerCount) {
+        this.batchHandler = batchHandler;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.hotThreshold = hotThreshold;
+        this.writers = Executors.newFixedThreadPool(writerCount, runnable -> {
+            Thread thread = new Thread(runnable, "participation-admission-" + writerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ticketTtlMs))
+                .build();
+    }
+
+    /**
+     * Пытается занять место среди прямых регистраций на событие. При успехе вызывающий обязан вызвать
+     * {@link #leaveDirect(Long)}, при отказе заявку нужно поставить в очередь через {@link #submit(Long, Long)}.
+     */
+    public boolean enterDirect(Long eventId) {
+        EventQueue queue = queues.get(eventId);
+        if (queue != null && (!queue.admissions.isEmpty() || queue.scheduled.get())) {
+            return false;
+        }
+        if (directRegistrations.merge(eventId, 1, Integer::sum) > hotThreshold) {
+            leaveDirect(eventId);
+            return false;
+        }
+        return true;
+    }
+
+    public void leaveDirect(Long eventId) {
+        directRegistrations.computeIfPresent(eventId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public Admission submit(Long userId, Long eventId) {
+        Admission admission = new Admission(UUID.randomUUID().toString(), userId, eventId, new CompletableFuture<>());
+        AtomicBoolean offered = new AtomicBoolean();
+        // заявка добавляется под блокировкой ключа, чтобы очередь не удалили между её получением и добавлением
+        EventQueue queue = queues.compute(eventId, (id, current) -> {
+            EventQueue eventQueue = current != null ? current : new EventQueue(id, new LinkedBlockingQueue<>(queueCapacity));
+            offered.set(eventQueue.admissions.offer(admission));
+            return eventQueue;
+        });
+        if (!offered.get()) {
+            admission.result.completeExceptionally(
+                    new ConditionsConflictException("Очередь заявок на участие в событии с id " + eventId + " переполнена"));
+            return admission;
+        }
+        schedule(queue);
+        return admission;
+    }
+
+    /**
+     * Сохраняет заявку, не дождавшуюся решения, чтобы её итог можно было получить по номеру в течение ticketTtlMs.
+     */
+    public String issueTicket(Admission admission) {
+        tickets.put(admission.ticket(), admission);
+        return admission.ticket();
+    }
+
+    public Optional<Admission> findByTicket(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    public void close() {
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(5, TimeUnit.SECONDS)) {
+                writers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(EventQueue queue) {
+        if (queue.scheduled.compareAndSet(false, true)) {
+            writers.execute(() -> drain(queue));
+        }
+    }
+
+    private void drain(EventQueue queue) {
+        List<Admission> batch = new ArrayList<>(batchSize);
+        queue.admissions.drainTo(batch, batchSize);
+        if (!batch.isEmpty()) {
+            process(queue.eventId, batch);
+        }
+
+        queue.scheduled.set(false);
+        queues.computeIfPresent(queue.eventId, (id, current) ->
+                current == queue && current.admissions.isEmpty() ? null : current);
+        // заявка могла прийти между выборкой пачки и сбросом флага
+        if (!queue.admissions.isEmpty()) {
+            schedule(queue);
+        }
+    }
+
+    private void process(Long eventId, List<Admission> batch) {
+        List<Decision> decisions;
+        try {
+            decisions = batchHandler.apply(eventId, batch.stream().map(Admission::userId).toList());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().result.completeExceptionally(e);
+                return;
+            }
+            // ошибка одной заявки откатила всю пачку, поэтому каждая заявка повторяется в своей транзакции
+            log.warn("Пачка заявок на участие в событии с id {} не сохранена, заявки обрабатываются по одной: {}",
+                    eventId, e.getMessage());
+            batch.forEach(admission -> process(eventId, List.of(admission)));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Decision decision = decisions.get(i);
+            if (decision.error() != null) {
+                batch.get(i).result.completeExceptionally(decision.error());
+            } else {
+                batch.get(i).result.complete(decision.request());
+            }
+        }
+    }
+
+    /**
+     * Итог обработки одной заявки из пачки: созданная заявка либо ошибка проверки.
+     */
+    public record Decision(ParticipationRequestDto request, RuntimeException error) {
+    }
+
+    /**
+     * Заявка в очереди. Номер выдаётся пользователю, если решение не получено за время ожидания.
+     */
+    public record Admission(String ticket, Long userId, Long eventId, CompletableFuture<ParticipationRequestDto> result) {
+    }
+
+    private record EventQueue(Long eventId, BlockingQueue<Admission> admissions, AtomicBoolean scheduled) {
+        EventQueue(Long eventId, BlockingQueue<Admission> admissions) {
+            this(eventId, admissions, new AtomicBoolean());
+        }
+    }
+}
@@ -7,10 +7,20 @@ import ru.practicum.dto.ParticipationRequestDto;
 import java.util.List;
 
 public interface ParticipationRequestService {
+    /**
+     * Статус заявки, которая принята в очередь регистрации, но ещё не обработана.
+     */
+    String QUEUED_STATUS = "QUEUED";
+
     List<ParticipationRequestDto> getUserRequests(Long userId);
 
     ParticipationRequestDto addParticipationRequest(Long userId, Long eventId);
 
+    /**
+     * Итог заявки, поставленной в очередь, по номеру из ответа со статусом {@link #QUEUED_STATUS}.
+     */
+    ParticipationRequestDto getQueuedRequest(Long userId, String ticket);
+
     ParticipationRequestDto cancelRequest(Long userId, Long requestId);
 
     EventRequestStatusUpdateResult changeRequestStatus(Long userId, Long eventId, EventRequestStatusUpdateRequest dto);
@@ -1,8 +1,12 @@
 package ru.practicum.service;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.dto.EventRequestStatusUpdateResult;
 import ru.practicum.dto.ParticipationRequestDto;
@@ -15,29 +19,107 @@ import ru.practicum.repository.ParticipationRequestRepository;
 import ru.practicum.repository.UserRepository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ParticipationRequestServiceImpl implements ParticipationRequestService {
     private final ParticipationRequestRepository requestRepository;
     private final ParticipationRequestMapper mapper;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final PublicEventCache publicEventCache;
+    private final TransactionTemplate transactionTemplate;
+    private final long admissionMaxWaitMs;
+    private ParticipationAdmission admission;
+
+    public ParticipationRequestServiceImpl(ParticipationRequestRepository requestRepository,
+                                           ParticipationRequestMapper mapper,
+                                           UserRepository userRepository,
+                                           EventRepository eventRepository,
+                                           PublicEventCache publicEventCache,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${participation.admission.enabled:false}") boolean admissionEnabled,
+                                           @Value("${participation.admission.queueCapacity:10000}") int admissionQueueCapacity,
+                                           @Value("${participation.admission.batchSize:200}") int admissionBatchSize,
+                                           @Value("${participation.admission.maxWaitMs:2000}") long admissionMaxWaitMs,
+                                           @Value("${participation.admission.hotThreshold:20}") int admissionHotThreshold,
+                                           @Value("${participation.admission.ticketTtlMs:600000}") long admissionTicketTtlMs,
+                                           @Value("${participation.admission.writers:4}") int admissionWriters) {
+        this.requestRepository = requestRepository;
+        this.mapper = mapper;
+        this.userRepository = userRepository;
+        this.eventRepository = eventRepository;
+        this.publicEventCache = publicEventCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.admissionMaxWaitMs = admissionMaxWaitMs;
+        if (admissionEnabled) {
+            admission = new ParticipationAdmission((eventId, userIds) ->
+                    transactionTemplate.execute(status -> admitBatch(eventId, userIds)),
+                    admissionQueueCapacity, admissionBatchSize, admissionHotThreshold, admissionTicketTtlMs,
+                    admissionWriters);
+        }
+    }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ParticipationRequestDto addParticipationRequest(Long userId, Long eventId) {
-        Event event = getEvent(eventId);
+        if (admission == null) {
+            return addParticipationRequestDirectly(userId, eventId);
+        }
+        if (admission.enterDirect(eventId)) {
+            try {
+                return addParticipationRequestDirectly(userId, eventId);
+            } finally {
+                admission.leaveDirect(eventId);
+            }
+        }
 
-        ParticipationRequest request = createParticipationRequest(userId, event);
+        // в режиме очереди вызывающий поток не держит соединение с базой, пока ждёт решения
+        ParticipationAdmission.Admission queued = admission.submit(userId, eventId);
+        try {
+            return queued.result().get(admissionMaxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return queuedRequest(queued);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return queuedRequest(queued);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
 
-        if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
-            request.setStatus(ParticipationRequestStatus.CONFIRMED);
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ParticipationRequestDto getQueuedRequest(Long userId, String ticket) {
+        ParticipationAdmission.Admission queued = Optional.ofNullable(admission)
+                .flatMap(queue -> queue.findByTicket(ticket))
+                .filter(candidate -> candidate.userId().equals(userId))
+                .orElseThrow(() -> new NotFoundException("Заявка в очереди с номером " + ticket
+                                                         + " для пользователя с id " + userId + " не найдена"));
+        if (!queued.result().isDone()) {
+            return queuedRequest(queued);
+        }
+        try {
+            return queued.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return queuedRequest(queued);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
         }
-        return mapper.mapToParticipationRequestDto(requestRepository.save(request));
     }
 
     @Override
@@ -59,8 +141,14 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
             throw new ConditionsConflictException("Заявка находится в статусе " + request.getStatus() + ". Отмена заявки невозможна");
         }
 
+        boolean wasConfirmed = request.getStatus() == ParticipationRequestStatus.CONFIRMED;
         request.setStatus(ParticipationRequestStatus.CANCELED);
-        return mapper.mapToParticipationRequestDto(requestRepository.save(request));
+        ParticipationRequestDto canceled = mapper.mapToParticipationRequestDto(requestRepository.save(request));
+        if (wasConfirmed) {
+            eventRepository.decrementConfirmedRequests(canceled.getEvent());
+            publicEventCache.evictCounters(canceled.getEvent());
+        }
+        return canceled;
     }
 
     @Override
@@ -79,36 +167,36 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
             return new EventRequestStatusUpdateResult(Collections.emptyList(), Collections.emptyList());
         }
 
-        int confirmedRequests = requestRepository.countByEventIdAndStatus(eventId, ParticipationRequestStatus.CONFIRMED);
-        int possibleToConfirmCount = event.getParticipantLimit() - confirmedRequests;
-
-        if (status == ParticipationRequestStatus.CONFIRMED && possibleToConfirmCount == 0) {
-            throw new ConditionsConflictException("Достигнут лимит на участие у события");
-        }
-
         List<ParticipationRequest> requests = requestRepository.findAllByIdIn(dto.getRequestIds());
+        if (requests.isEmpty()) {
+            return new EventRequestStatusUpdateResult(Collections.emptyList(), Collections.emptyList());
+        }
         List<ParticipationRequestDto> confirmed = new ArrayList<>();
         List<ParticipationRequestDto> rejected = new ArrayList<>();
         List<Long> confirmedIds = new ArrayList<>();
         List<Long> rejectedIds = new ArrayList<>();
 
         if (status == ParticipationRequestStatus.CONFIRMED) {
+            requests.forEach(this::checkStatus);
+            // строка события заблокирована до конца транзакции, поэтому параллельные подтверждения не превысят лимит
+            int granted = eventRepository.findFreeSeatsForUpdate(eventId, requests.size())
+                    .filter(seats -> seats > 0)
+                    .orElseThrow(() -> new ConditionsConflictException("Достигнут лимит на участие у события"));
             for (int i = 0; i < requests.size(); i++) {
-                ParticipationRequest request = requests.get(i);
-                checkStatus(request);
-                if (i + 1 <= possibleToConfirmCount) {
-                    ParticipationRequestDto confirmedDto = mapper.mapToParticipationRequestDto(request);
-                    confirmedDto.setStatus(ParticipationRequestStatus.CONFIRMED.name());
-                    confirmed.add(confirmedDto);
-                    confirmedIds.add(request.getId());
+                ParticipationRequestDto requestDto = mapper.mapToParticipationRequestDto(requests.get(i));
+                if (i < granted) {
+                    requestDto.setStatus(ParticipationRequestStatus.CONFIRMED.name());
+                    confirmed.add(requestDto);
+                    confirmedIds.add(requestDto.getId());
                 } else {
-                    ParticipationRequestDto rejectedDto = mapper.mapToParticipationRequestDto(request);
-                    rejectedDto.setStatus(ParticipationRequestStatus.REJECTED.name());
-                    rejected.add(rejectedDto);
-                    rejectedIds.add(request.getId());
+                    requestDto.setStatus(ParticipationRequestStatus.REJECTED.name());
+                    rejected.add(requestDto);
+                    rejectedIds.add(requestDto.getId());
                 }
             }
+            eventRepository.addConfirmedRequests(eventId, granted);
             requestRepository.updateStatus(ParticipationRequestStatus.CONFIRMED, confirmedIds);
+            publicEventCache.evictCounters(eventId);
             if (!rejectedIds.isEmpty()) {
                 requestRepository.updateStatus(ParticipationRequestStatus.REJECTED, rejectedIds);
             }
@@ -136,6 +224,98 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
                 .toList();
     }
 
+    @PreDestroy
+    public void close() {
+        if (admission != null) {
+            admission.close();
+        }
+    }
+
+    private List<ParticipationAdmission.Decision> admitBatch(Long eventId, List<Long> userIds) {
+        Event event = getEvent(eventId);
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        // повторная заявка нарушила бы уникальный индекс и откатила всю пачку, поэтому проверяется заранее
+        Set<Long> requesterIds = requestRepository.findAllByEvent_IdAndRequester_IdIn(eventId, userIds).stream()
+                .map(request -> request.getRequester().getId())
+                .collect(Collectors.toCollection(HashSet::new));
+
+        ParticipationRequest[] requests = new ParticipationRequest[userIds.size()];
+        RuntimeException[] errors = new RuntimeException[userIds.size()];
+        int accepted = 0;
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            try {
+                User user = Optional.ofNullable(users.get(userId))
+                        .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
+                if (!requesterIds.add(userId)) {
+                    throw new ConditionsConflictException("Пользователь с id " + userId +
+                                                          " уже подал заявку на участие в событии с id " + eventId);
+                }
+                requests[i] = newParticipationRequest(user, event);
+                accepted++;
+            } catch (NotFoundException | ConditionsConflictException e) {
+                errors[i] = e;
+            }
+        }
+
+        // места под всю пачку занимаются одним update-ом, заявкам сверх свободных мест отказывается
+        int granted = 0;
+        if (accepted > 0 && confirmsImmediately(event)) {
+            int seats = Math.max(eventRepository.findFreeSeatsForUpdate(eventId, accepted).orElse(0), 0);
+            for (int i = 0; i < requests.length; i++) {
+                if (requests[i] == null) {
+                    continue;
+                }
+                if (granted < seats) {
+                    requests[i].setStatus(ParticipationRequestStatus.CONFIRMED);
+                    granted++;
+                } else {
+                    requests[i] = null;
+                    errors[i] = new ConditionsConflictException("Достигнут лимит на участие у события");
+                }
+            }
+        }
+        requestRepository.saveAll(Arrays.stream(requests).filter(Objects::nonNull).toList());
+        if (granted > 0) {
+            eventRepository.addConfirmedRequests(eventId, granted);
+            publicEventCache.evictCounters(eventId);
+        }
+
+        List<ParticipationAdmission.Decision> decisions = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            decisions.add(new ParticipationAdmission.Decision(
+                    requests[i] == null ? null : mapper.mapToParticipationRequestDto(requests[i]), errors[i]));
+        }
+        return decisions;
+    }
+
+    private ParticipationRequestDto addParticipationRequestDirectly(Long userId, Long eventId) {
+        return transactionTemplate.execute(status -> mapper.mapToParticipationRequestDto(
+                requestRepository.save(createParticipationRequest(getUser(userId), getEvent(eventId)))));
+    }
+
+    private ParticipationRequestDto queuedRequest(ParticipationAdmission.Admission queued) {
+        ParticipationRequestDto dto = new ParticipationRequestDto();
+        dto.setEvent(queued.eventId());
+        dto.setRequester(queued.userId());
+        dto.setStatus(QUEUED_STATUS);
+        dto.setTicket(admission.issueTicket(queued));
+        return dto;
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    private User getUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
+    }
+
     private Event getEvent(Long eventId) {
         return eventRepository.findById(eventId)
                 .orElseThrow(() -> new NotFoundException("Событие с id " + eventId + " не найдено"));
@@ -153,18 +333,30 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         }
     }
 
-    private ParticipationRequest createParticipationRequest(Long userId, Event event) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
+    private ParticipationRequest createParticipationRequest(User user, Event event) {
+        ParticipationRequest request = newParticipationRequest(user, event);
+        if (confirmsImmediately(event)) {
+            if (eventRepository.incrementConfirmedRequests(event.getId()) == 0) {
+                throw new ConditionsConflictException("Достигнут лимит на участие у события");
+            }
+            request.setStatus(ParticipationRequestStatus.CONFIRMED);
+            publicEventCache.evictCounters(event.getId());
+        }
+        return request;
+    }
 
+    private ParticipationRequest newParticipationRequest(User user, Event event) {
         validateRequest(event, user);
         ParticipationRequest request = new ParticipationRequest();
         request.setRequester(user);
         request.setEvent(event);
-
         return request;
     }
 
+    private boolean confirmsImmediately(Event event) {
+        return !event.getRequestModeration() || event.getParticipantLimit() == 0;
+    }
+
     private void validateRequest(Event event, User user) {
         if (event.getInitiator().getId().equals(user.getId())) {
             throw new ConditionsConflictException("Пользователь с id " + user.getId() +
@@ -176,9 +368,7 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
             throw new ConditionsConflictException("Нельзя участвовать в неопубликованном событии");
         }
 
-        int confirmedRequests = requestRepository.countByEventIdAndStatus(event.getId(), ParticipationRequestStatus.CONFIRMED);
-
-        if (event.getParticipantLimit() > 0 && event.getParticipantLimit() == confirmedRequests) {
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new ConditionsConflictException("Достигнут лимит на участие у события");
         }
     }
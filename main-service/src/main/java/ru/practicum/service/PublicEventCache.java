@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.CommentDto;
+import ru.practicum.dto.EventFullDto;
+import ru.practicum.util.TransactionUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Собранные ответы GET /events/{id} для опубликованных событий. Поля самого события и счётчики хранятся отдельно:
+ * поля сбрасываются при изменении события, счётчики — при изменении заявок и комментариев события.
+ * Категория и просмотры в кэш не входят, они подставляются при каждом ответе.
+ */
+@Component
+public class PublicEventCache {
+    private final Cache<Long, EventSnapshot> events;
+    private final Cache<Long, EventCounters> counters;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PublicEventCache(@Value("${events.publicCache.maximumSize:10000}") long maximumSize,
+                            @Value("${events.publicCache.expireAfterMs:600000}") long expireAfterMs,
+                            @Value("${events.publicCache.countersExpireAfterMs:60000}") long countersExpireAfterMs,
+                            PlatformTransactionManager transactionManager,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        events = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build();
+        counters = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(countersExpireAfterMs))
+                .recordStats()
+                .build();
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, events, "publicEvents");
+            CaffeineCacheMetrics.monitor(registry, counters, "publicEventCounters");
+        });
+    }
+
+    /**
+     * Загрузчики выполняются в транзакции только для чтения, при попадании в кэш транзакция не открывается.
+     */
+    public EventSnapshot getEvent(Long eventId, Function<Long, EventSnapshot> loader) {
+        return events.get(eventId, id -> readOnlyTransaction.execute(status -> loader.apply(id)));
+    }
+
+    public EventCounters getCounters(Long eventId, Function<Long, EventCounters> loader) {
+        return counters.get(eventId, id -> readOnlyTransaction.execute(status -> loader.apply(id)));
+    }
+
+    public void evictEvent(Long eventId) {
+        TransactionUtils.afterCommit(() -> {
+            events.invalidate(eventId);
+            counters.invalidate(eventId);
+        });
+    }
+
+    public void evictCounters(Long eventId) {
+        TransactionUtils.afterCommit(() -> counters.invalidate(eventId));
+    }
+
+    public void evictCounters(Collection<Long> eventIds) {
+        TransactionUtils.afterCommit(() -> counters.invalidateAll(eventIds));
+    }
+
+    /**
+     * Поля события без категории, просмотров и счётчиков. Отдаётся только копия dto.
+     */
+    public record EventSnapshot(EventFullDto event, Long categoryId, LocalDateTime publishedOn) {
+    }
+
+    public record EventCounters(Long confirmedRequests, List<CommentDto> comments, Long commentsCount) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Общее количество найденных записей. Считается отдельным запросом только по требованию клиента
+ * и кэшируется по фильтру поиска без параметров страницы, поэтому может отставать на expireAfterMs.
+ */
+@Component
+public class SearchTotalCounts {
+    private final Cache<Object, Long> cache;
+
+    public SearchTotalCounts(@Value("${search.totalCount.maximumSize:10000}") long maximumSize,
+                             @Value("${search.totalCount.expireAfterMs:30000}") long expireAfterMs,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterMs))
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "searchTotalCounts"));
+    }
+
+    public long get(Object filter, Supplier<Long> counter) {
+        return cache.get(filter, key -> counter.get());
+    }
+}
@@ -3,12 +3,14 @@ package ru.practicum.service;
 import ru.practicum.dto.NewUserRequest;
 import ru.practicum.dto.UserDto;
 
+import ru.practicum.util.CursorPage;
+
 import java.util.List;
 
 public interface UserService {
     UserDto registerUser(NewUserRequest newUser);
 
-    List<UserDto> getUsers(List<Long> ids, Integer from, Integer size);
+    CursorPage<UserDto> getUsers(List<Long> ids, Integer from, Integer size, String cursor);
 
     void deleteUser(Long userId);
 }
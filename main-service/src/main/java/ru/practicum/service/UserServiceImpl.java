@@ -1,7 +1,10 @@
 package ru.practicum.service;
 
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.NewUserRequest;
@@ -9,7 +12,10 @@ import ru.practicum.dto.UserDto;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.UserMapper;
 import ru.practicum.model.QUser;
+import ru.practicum.model.User;
 import ru.practicum.repository.UserRepository;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
 
 import java.util.List;
 
@@ -27,18 +33,17 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDto> getUsers(List<Long> ids, Integer from, Integer size) {
-        PageRequest page = PageRequest.of(from / size, size);
-
-        if (ids != null && !ids.isEmpty()) {
-            return userRepository.findAll(QUser.user.id.in(ids), page).stream()
-                    .map(userMapper::mapToUserDto)
-                    .toList();
+    public CursorPage<UserDto> getUsers(List<Long> ids, Integer from, Integer size, String cursor) {
+        if (cursor != null) {
+            return getUsersAfter(ids, PageCursor.decode(cursor), size).map(userMapper::mapToUserDto);
         }
 
-        return userRepository.findAll(page).stream()
-                .map(userMapper::mapToUserDto)
-                .toList();
+        // порядок тот же, что и при чтении по курсору, поэтому со страницы по from/size можно продолжить курсором
+        PageRequest page = PageRequest.of(from / size, size, Sort.by("id"));
+
+        Predicate predicate = ids != null && !ids.isEmpty() ? QUser.user.id.in(ids) : null;
+        return CursorPage.of(userRepository.findSlice(QUser.user, predicate, page).getContent(), size, u -> null, User::getId)
+                .map(userMapper::mapToUserDto);
     }
 
     @Override
@@ -48,4 +53,17 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
         userRepository.deleteById(userId);
     }
+
+    private CursorPage<User> getUsersAfter(List<Long> ids, PageCursor after, int size) {
+        QUser user = QUser.user;
+        BooleanBuilder predicate = new BooleanBuilder();
+        if (ids != null && !ids.isEmpty()) {
+            predicate.and(user.id.in(ids));
+        }
+        if (after != null) {
+            predicate.and(user.id.gt(after.id()));
+        }
+        List<User> users = userRepository.findBy(predicate, query -> query.sortBy(Sort.by("id")).limit(size).all());
+        return CursorPage.of(users, size, u -> null, User::getId);
+    }
 }
@@ -0,0 +1,47 @@
+package ru.practicum.util;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка и курсор следующей страницы. Курсор есть у каждой заполненной целиком страницы с keyset-порядком,
+ * в том числе полученной по from/size.
+ * Общее количество записей заполняется, только если клиент его запросил.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, Long total) {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    public static <T> CursorPage<T> of(List<T> content) {
+        return new CursorPage<>(content, null, null);
+    }
+
+    public static <T> CursorPage<T> of(List<T> content, int size, Function<T, Object> sortValue, Function<T, Long> id) {
+        if (content.size() < size) {
+            return of(content);
+        }
+        T last = content.getLast();
+        return new CursorPage<>(content, PageCursor.encode(sortValue.apply(last), id.apply(last)), null);
+    }
+
+    public CursorPage<T> withTotal(Long total) {
+        return new CursorPage<>(content, nextCursor, total);
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).toList(), nextCursor, total);
+    }
+
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        if (total != null) {
+            response.header(TOTAL_COUNT_HEADER, total.toString());
+        }
+        return response.body(content);
+    }
+}
@@ -2,8 +2,11 @@ package ru.practicum.util;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.querydsl.QPageRequest;
+import org.springframework.data.querydsl.QSort;
 import ru.practicum.dto.EventSearchRequestAdmin;
 import ru.practicum.dto.EventSearchRequestUser;
 import ru.practicum.dto.UpdateEventAdminRequest;
@@ -14,6 +17,8 @@ import ru.practicum.exception.ValidationException;
 import ru.practicum.model.*;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static ru.practicum.model.EventStateAdmin.PUBLISH_EVENT;
@@ -157,6 +162,10 @@ public class EventUtils {
         if (req.getPaid() != null) {
             booleanBuilder.and(event.paid.eq(req.getPaid()));
         }
+        if (Boolean.TRUE.equals(req.getOnlyAvailable())) {
+            booleanBuilder.and(event.participantLimit.eq(0)
+                    .or(event.confirmedRequests.lt(event.participantLimit)));
+        }
 
         return booleanBuilder.getValue();
     }
@@ -183,24 +192,96 @@ public class EventUtils {
         return Optional.ofNullable(booleanBuilder.getValue());
     }
 
-    private static Optional<Sort> getUserSearchSort(EventSearchRequestUser req) {
+    /**
+     * Ключ кэша общего количества: фильтр поиска без сортировки и параметров страницы.
+     */
+    public static List<Object> getUserSearchCountKey(EventSearchRequestUser req) {
+        return Arrays.asList(EventSearchRequestUser.class, req.getText(), req.getCategories(), req.getPaid(),
+                req.getRangeStart(), req.getRangeEnd(), req.getOnlyAvailable());
+    }
+
+    public static List<Object> getAdminSearchCountKey(EventSearchRequestAdmin req) {
+        return Arrays.asList(EventSearchRequestAdmin.class, req.getUsers(), req.getStates(), req.getCategories(),
+                req.getRangeStart(), req.getRangeEnd());
+    }
+
+    public static boolean isRelevanceSort(EventSearchRequestUser req) {
+        return req.getSort() != null && EventUserSort.fromString(req.getSort()) == EventUserSort.RELEVANCE;
+    }
+
+    public static boolean isViewsSort(EventSearchRequestUser req) {
+        return req.getSort() != null && EventUserSort.fromString(req.getSort()) == EventUserSort.VIEWS;
+    }
+
+    /**
+     * Чем ближе текст запроса к какому-либо слову аннотации или описания, тем выше событие в выдаче.
+     */
+    private static QSort getRelevanceSort(String text) {
+        if (text == null || text.isBlank()) {
+            throw new ValidationException("Сортировка RELEVANCE возможна только при поиске по тексту");
+        }
+        QEvent event = QEvent.event;
+        String query = text.toLowerCase();
+        NumberExpression<Float> annotationSimilarity = Expressions.numberTemplate(Float.class,
+                "function('word_similarity', {0}, lower({1}))", query, event.annotation);
+        NumberExpression<Float> descriptionSimilarity = Expressions.numberTemplate(Float.class,
+                "function('word_similarity', {0}, lower({1}))", query, event.description);
+        return new QSort(annotationSimilarity.desc(), descriptionSimilarity.desc(), event.id.asc());
+    }
+
+    /**
+     * Страница по from/size в том же порядке, что и выдача по курсору; RELEVANCE сортируется по близости к тексту.
+     */
+    public static Pageable getUserSearchPage(EventSearchRequestUser param) {
+        QSort sort = isRelevanceSort(param) ? getRelevanceSort(param.getText()) : getUserSearchKeysetSort(param);
+        return QPageRequest.of(param.getFrom() / param.getSize(), param.getSize(), sort);
+    }
+
+    /**
+     * Сортировка выдачи по курсору: к ключу сортировки добавляется id, чтобы порядок был однозначным.
+     */
+    public static QSort getUserSearchKeysetSort(EventSearchRequestUser req) {
+        QEvent event = QEvent.event;
         if (req.getSort() == null) {
-            return Optional.empty();
+            return new QSort(event.id.asc());
         }
-        EventUserSort userSort = EventUserSort.fromString(req.getSort());
-        String sortColumn = switch (userSort) {
-            case EVENT_DATE -> "eventDate";
-            case VIEWS -> "views";
+        return switch (EventUserSort.fromString(req.getSort())) {
+            case EVENT_DATE -> new QSort(event.eventDate.desc(), event.id.desc());
+            case VIEWS -> new QSort(event.views.desc(), event.id.desc());
+            case RELEVANCE -> throw new ValidationException("Сортировка RELEVANCE не поддерживает пагинацию по курсору");
         };
-        return Optional.of(Sort.by(Sort.Direction.DESC, sortColumn));
     }
 
-    public static PageRequest getUserSearchPage(EventSearchRequestUser param) {
-        if (getUserSearchSort(param).isEmpty()) {
-            return PageRequest.of(param.getFrom() / param.getSize(), param.getSize());
-        } else {
-            return PageRequest.of(param.getFrom() / param.getSize(), param.getSize(), getUserSearchSort(param).get());
+    /**
+     * Условие выборки событий, идущих в сортировке getUserSearchKeysetSort после курсора.
+     */
+    public static Predicate getUserSearchAfter(EventSearchRequestUser req, PageCursor after) {
+        QEvent event = QEvent.event;
+        if (req.getSort() == null) {
+            return event.id.gt(after.id());
         }
+        return switch (EventUserSort.fromString(req.getSort())) {
+            case EVENT_DATE -> {
+                LocalDateTime eventDate = after.sortValueAsDateTime();
+                yield event.eventDate.lt(eventDate).or(event.eventDate.eq(eventDate).and(event.id.lt(after.id())));
+            }
+            case VIEWS -> {
+                Long views = after.sortValueAsLong();
+                yield event.views.lt(views).or(event.views.eq(views).and(event.id.lt(after.id())));
+            }
+            case RELEVANCE -> throw new ValidationException("Сортировка RELEVANCE не поддерживает пагинацию по курсору");
+        };
+    }
+
+    public static Object getUserSearchSortValue(EventSearchRequestUser req, EventShortView event) {
+        if (req.getSort() == null) {
+            return null;
+        }
+        return switch (EventUserSort.fromString(req.getSort())) {
+            case EVENT_DATE -> event.eventDate();
+            case VIEWS -> event.views();
+            case RELEVANCE -> throw new ValidationException("Сортировка RELEVANCE не поддерживает пагинацию по курсору");
+        };
     }
 
     public static void checkDates(LocalDateTime start, LocalDateTime end) {
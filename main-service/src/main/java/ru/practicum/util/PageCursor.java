@@ -0,0 +1,52 @@
+package ru.practicum.util;
+
+import ru.practicum.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Курсор keyset-пагинации: значение ключа сортировки и id последней отданной записи.
+ * Клиенту передаётся непрозрачной строкой в base64url.
+ */
+public record PageCursor(String sortValue, Long id) {
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Пустая строка означает первую страницу, для неё возвращается null.
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            return new PageCursor(decoded.substring(0, separator), Long.valueOf(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Некорректный курсор страницы: " + token);
+        }
+    }
+
+    public static String encode(Object sortValue, Long id) {
+        String value = (sortValue == null ? "" : sortValue.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long sortValueAsLong() {
+        try {
+            return Long.valueOf(sortValue);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Курсор страницы не соответствует сортировке");
+        }
+    }
+
+    public LocalDateTime sortValueAsDateTime() {
+        try {
+            return LocalDateTime.parse(sortValue);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Курсор страницы не соответствует сортировке");
+        }
+    }
+}
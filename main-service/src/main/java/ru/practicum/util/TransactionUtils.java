@@ -0,0 +1,26 @@
+package ru.practicum.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+    private TransactionUtils() {
+    }
+
+    /**
+     * Выполняет действие после коммита текущей транзакции, а без транзакции — сразу.
+     * Нужно для сброса кэшей: до коммита другой поток может снова закэшировать старые данные.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
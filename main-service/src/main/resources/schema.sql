@@ -2,11 +2,14 @@ DROP TABLE IF EXISTS compilation_events;
 DROP TABLE IF EXISTS participation_requests;
 DROP TABLE IF EXISTS comments;
 DROP TABLE IF EXISTS events;
+-- курсор синхронизации просмотров относится к строкам events и пересоздаётся вместе с ними
+DROP TABLE IF EXISTS stats_sync_cursors;
 DROP TABLE IF EXISTS compilations;
 DROP TABLE IF EXISTS categories;
 DROP TABLE IF EXISTS locations;
 DROP TABLE IF EXISTS users;
 
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
 
 CREATE TABLE IF NOT EXISTS categories (
     id              BIGINT GENERATED BY DEFAULT AS IDENTITY(START WITH 0 MINVALUE 0) PRIMARY KEY,
@@ -37,10 +40,12 @@ CREATE TABLE IF NOT EXISTS events (
     location_id             BIGINT,
     paid                    BOOLEAN,
     participant_limit       INTEGER,
+    confirmed_requests      INTEGER NOT NULL DEFAULT 0,
     published_on            TIMESTAMP WITHOUT TIME ZONE,
     request_moderation      BOOLEAN,
     state                   VARCHAR(100) NOT NULL,
     title                   VARCHAR(120) NOT NULL,
+    views                   BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT fk_events_to_categories FOREIGN KEY (category_id) REFERENCES categories(id),
     CONSTRAINT fk_events_to_users FOREIGN KEY (initiator_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_events_to_locations FOREIGN KEY (location_id) REFERENCES locations(id)
@@ -49,6 +54,9 @@ CREATE TABLE IF NOT EXISTS events (
 CREATE INDEX idx_events_category_id ON events (category_id);
 CREATE INDEX idx_events_initiator_id ON events (initiator_id);
 CREATE INDEX idx_events_location_id ON events (location_id);
+CREATE INDEX idx_events_state_views ON events (state, views DESC);
+CREATE INDEX idx_events_annotation_trgm ON events USING gin (lower(annotation) gin_trgm_ops);
+CREATE INDEX idx_events_description_trgm ON events USING gin (lower(description) gin_trgm_ops);
 
 CREATE TABLE IF NOT EXISTS compilations (
     id              BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 0 MINVALUE 0) PRIMARY KEY,
@@ -88,5 +96,10 @@ CREATE TABLE IF NOT EXISTS comments (
     CONSTRAINT fk_comments_to_users FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
-CREATE INDEX idx_comments_event_id ON comments (event_id);
-CREATE INDEX idx_comments_author_id ON comments (author_id);
\ No newline at end of file
+CREATE INDEX idx_comments_event_created ON comments (event_id, created_at, id);
+CREATE INDEX idx_comments_author_id ON comments (author_id);
+
+CREATE TABLE IF NOT EXISTS stats_sync_cursors (
+    name            VARCHAR(50) PRIMARY KEY,
+    cursor          VARCHAR(100) NOT NULL
+);
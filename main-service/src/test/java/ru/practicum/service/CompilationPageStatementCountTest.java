@@ -0,0 +1,94 @@
+package ru.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.CompilationDto;
+import ru.practicum.dto.NewCompilationDto;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Страница подборок читается двумя запросами независимо от числа событий в подборках:
+ * id подборок страницы с limit/offset в базе, затем подборки этой страницы с событиями.
+ */
+@SpringBootTest
+class CompilationPageStatementCountTest extends PostgresIntegrationTest {
+    private static final int COMPILATIONS = 12;
+    private static final int EVENTS = 40;
+    private static final int EVENTS_PER_COMPILATION = 25;
+    private static final int PAGE_SIZE = 5;
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CompilationService compilationService;
+    @Autowired
+    private CompilationCache compilationCache;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void compilationsPageRunsTwoBoundedQueries() {
+        EventFixtures fixtures = new EventFixtures(userService, categoryService, eventService);
+        Long initiatorId = fixtures.createUser();
+        Long categoryId = fixtures.createCategory();
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            eventIds.add(fixtures.createPublishedEvent(initiatorId, categoryId));
+        }
+        List<Long> compilationIds = new ArrayList<>();
+        for (int i = 0; i < COMPILATIONS; i++) {
+            NewCompilationDto newCompilation = new NewCompilationDto();
+            newCompilation.setTitle("Compilation " + i);
+            newCompilation.setPinned(true);
+            // у соседних подборок общие события
+            Set<Long> events = new HashSet<>();
+            for (int j = 0; j < EVENTS_PER_COMPILATION; j++) {
+                events.add(eventIds.get((i + j) % EVENTS));
+            }
+            newCompilation.setEvents(events);
+            compilationIds.add(compilationService.saveCompilation(newCompilation).getId());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        compilationCache.evictAll();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        List<CompilationDto> page = compilationService.getCompilations(true, PAGE_SIZE, PAGE_SIZE);
+
+        assertEquals(compilationIds.subList(PAGE_SIZE, 2 * PAGE_SIZE), page.stream().map(CompilationDto::getId).toList());
+        page.forEach(compilation -> assertEquals(EVENTS_PER_COMPILATION, compilation.getEvents().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        QueryStatistics idsQuery = statistics.getQueryStatistics(findQuery(statistics, "select c.id from Compilation c"));
+        assertEquals(PAGE_SIZE, idsQuery.getExecutionRowCount());
+    }
+
+    private String findQuery(Statistics statistics, String prefix) {
+        for (String query : statistics.getQueries()) {
+            if (query.startsWith(prefix)) {
+                return query;
+            }
+        }
+        throw new AssertionError("Запрос не выполнялся: " + prefix);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import ru.practicum.dto.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ru.practicum.service.EventServiceImpl.DATE_TIME_FORMATTER;
+
+/**
+ * Создание пользователей, категорий и опубликованных событий через сервисы для интеграционных тестов.
+ */
+@RequiredArgsConstructor
+class EventFixtures {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private final UserService userService;
+    private final CategoryService categoryService;
+    private final EventService eventService;
+
+    Long createUser() {
+        int id = SEQUENCE.incrementAndGet();
+        NewUserRequest newUser = new NewUserRequest();
+        newUser.setName("user" + id);
+        newUser.setEmail("user" + id + "@example.com");
+        return userService.registerUser(newUser).getId();
+    }
+
+    Long createCategory() {
+        NewCategoryDto newCategory = new NewCategoryDto();
+        newCategory.setName("category" + SEQUENCE.incrementAndGet());
+        return categoryService.addCategory(newCategory).getId();
+    }
+
+    Long createPublishedEvent(Long initiatorId, Long categoryId) {
+        int id = SEQUENCE.incrementAndGet();
+        NewEventDto newEvent = new NewEventDto();
+        newEvent.setAnnotation("Annotation of event number " + id);
+        newEvent.setCategory(categoryId);
+        newEvent.setDescription("Description of event number " + id);
+        newEvent.setEventDate(DATE_TIME_FORMATTER.format(LocalDateTime.now().plusDays(1).plusMinutes(id)));
+        newEvent.setLocation(new Location(55.75, 37.62));
+        newEvent.setTitle("Event " + id);
+        Long eventId = eventService.create(initiatorId, newEvent).getId();
+
+        UpdateEventAdminRequest publish = new UpdateEventAdminRequest();
+        publish.setStateAction("PUBLISH_EVENT");
+        eventService.updateByAdmin(eventId, publish);
+        return eventId;
+    }
+}
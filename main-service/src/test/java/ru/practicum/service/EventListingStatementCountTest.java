@@ -0,0 +1,121 @@
+package ru.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.*;
+import ru.practicum.model.EventState;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Число SQL-запросов списков событий не зависит от числа событий на странице.
+ */
+@SpringBootTest
+class EventListingStatementCountTest extends PostgresIntegrationTest {
+    private static final int COMMENTS_PER_EVENT = 3;
+    // страница событий, последние комментарии, авторы комментариев, число комментариев
+    private static final long LISTING_STATEMENTS = 4;
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20})
+    void searchForAdminRunsFixedNumberOfStatements(int eventCount) {
+        Fixture fixture = createPublishedEvents(eventCount);
+        EventSearchRequestAdmin request = new EventSearchRequestAdmin(List.of(fixture.initiatorId()),
+                List.of(EventState.PUBLISHED), null, null, null, 0, eventCount, null, false);
+
+        Measurement page = countStatements(() -> eventService.searchForAdmin(request).content().size());
+
+        assertEquals(eventCount, page.size());
+        assertEquals(LISTING_STATEMENTS, page.statements());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20})
+    void searchForUserRunsFixedNumberOfStatements(int eventCount) {
+        Fixture fixture = createPublishedEvents(eventCount);
+        EventSearchRequestUser request = new EventSearchRequestUser(null, List.of(fixture.categoryId()), null,
+                null, null, false, null, 0, eventCount, null, false);
+
+        Measurement page = countStatements(() -> eventService.searchForUser(request).content().size());
+
+        assertEquals(eventCount, page.size());
+        assertEquals(LISTING_STATEMENTS, page.statements());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20})
+    void getAllByUserRunsFixedNumberOfStatements(int eventCount) {
+        Fixture fixture = createPublishedEvents(eventCount);
+
+        Measurement page = countStatements(() ->
+                eventService.getAllByUser(fixture.initiatorId(), 0, eventCount, null).content().size());
+
+        assertEquals(eventCount, page.size());
+        assertEquals(LISTING_STATEMENTS, page.statements());
+    }
+
+    /**
+     * Первый вызов заполняет кэш категорий, перед замером второй выборки второй уровень кэша Hibernate очищается.
+     */
+    private Measurement countStatements(Supplier<Integer> listing) {
+        listing.get();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        int size = listing.get();
+        return new Measurement(size, statistics.getPrepareStatementCount());
+    }
+
+    private Fixture createPublishedEvents(int eventCount) {
+        EventFixtures fixtures = new EventFixtures(userService, categoryService, eventService);
+        Long initiatorId = fixtures.createUser();
+        Long commenterId = fixtures.createUser();
+        Long categoryId = fixtures.createCategory();
+
+        for (int i = 0; i < eventCount; i++) {
+            Long eventId = fixtures.createPublishedEvent(initiatorId, categoryId);
+            for (int j = 0; j < COMMENTS_PER_EVENT; j++) {
+                NewCommentDto comment = new NewCommentDto();
+                comment.setText("Comment " + j);
+                commentService.createComment(commenterId, eventId, comment);
+            }
+        }
+        return new Fixture(initiatorId, categoryId);
+    }
+
+    private record Fixture(Long initiatorId, Long categoryId) {
+    }
+
+    private record Measurement(int size, long statements) {
+    }
+}
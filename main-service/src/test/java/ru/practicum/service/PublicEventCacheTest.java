@@ -0,0 +1,86 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.dto.UpdateEventAdminRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ответ GET /events/{id} из кэша обновляется сразу после подтверждения заявки и изменения события,
+ * а просмотры запрашиваются при каждом ответе.
+ */
+@SpringBootTest
+class PublicEventCacheTest extends PostgresIntegrationTest {
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private ParticipationRequestService participationRequestService;
+    private EventFixtures fixtures;
+    private Long initiatorId;
+    private Long eventId;
+
+    @BeforeEach
+    void createEvent() {
+        fixtures = new EventFixtures(userService, categoryService, eventService);
+        initiatorId = fixtures.createUser();
+        eventId = fixtures.createPublishedEvent(initiatorId, fixtures.createCategory());
+    }
+
+    @Test
+    void confirmedRequestIsShownAfterConfirmation() {
+        // без лимита участников заявка подтверждается сразу, с лимитом ждёт модерации
+        UpdateEventAdminRequest limit = new UpdateEventAdminRequest();
+        limit.setParticipantLimit(10);
+        eventService.updateByAdmin(eventId, limit);
+        Long requestId = participationRequestService.addParticipationRequest(fixtures.createUser(), eventId).getId();
+        assertEquals(0L, eventService.getPublicEvent(eventId).getConfirmedRequests());
+
+        EventRequestStatusUpdateRequest confirm = new EventRequestStatusUpdateRequest();
+        confirm.setRequestIds(List.of(requestId));
+        confirm.setStatus("CONFIRMED");
+        participationRequestService.changeRequestStatus(initiatorId, eventId, confirm);
+
+        assertEquals(1L, eventService.getPublicEvent(eventId).getConfirmedRequests());
+    }
+
+    @Test
+    void updatedEventIsShownAfterUpdate() {
+        eventService.getPublicEvent(eventId);
+
+        UpdateEventAdminRequest update = new UpdateEventAdminRequest();
+        update.setTitle("Updated title");
+        eventService.updateByAdmin(eventId, update);
+
+        assertEquals("Updated title", eventService.getPublicEvent(eventId).getTitle());
+    }
+
+    @Test
+    void viewsAreNotCached() {
+        String uri = "/events/" + eventId;
+        when(statsClient.getStatsByUri(anyList(), any(), anyBoolean())).thenReturn(Map.of(uri, 3L));
+        assertEquals(3L, eventService.getPublicEvent(eventId).getViews());
+
+        when(statsClient.getStatsByUri(anyList(), any(), anyBoolean())).thenReturn(Map.of(uri, 4L));
+        assertEquals(4L, eventService.getPublicEvent(eventId).getViews());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.StatsClient;
+import ru.practicum.model.Category;
+import ru.practicum.model.EventLocation;
+import ru.practicum.model.User;
+import ru.practicum.repository.CategoryRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Пользователи, категории и места событий после первого чтения берутся из второго уровня кэша Hibernate
+ * без запросов к базе.
+ */
+@SpringBootTest
+class SecondLevelCacheTest extends PostgresIntegrationTest {
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private Long initiatorId;
+    private Long categoryId;
+    private Long eventId;
+
+    @BeforeEach
+    void createEvent() {
+        EventFixtures fixtures = new EventFixtures(userService, categoryService, eventService);
+        initiatorId = fixtures.createUser();
+        categoryId = fixtures.createCategory();
+        eventId = fixtures.createPublishedEvent(initiatorId, categoryId);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void repeatedEventReadTakesInitiatorAndLocationFromCache() {
+        eventService.getByUser(initiatorId, eventId);
+        statistics.clear();
+
+        eventService.getByUser(initiatorId, eventId);
+
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(EventLocation.class.getName()).getLoadCount());
+        assertTrue(statistics.getDomainDataRegionStatistics("users").getHitCount() > 0);
+        assertTrue(statistics.getDomainDataRegionStatistics("locations").getHitCount() > 0);
+    }
+
+    @Test
+    void repeatedCategoryReadRunsNoStatement() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> categoryRepository.findById(categoryId));
+        statistics.clear();
+
+        Category category = transaction.execute(status -> categoryRepository.findById(categoryId).orElseThrow());
+
+        assertEquals(categoryId, category.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("categories").getHitCount());
+    }
+}
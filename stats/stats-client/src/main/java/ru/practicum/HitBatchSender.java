@@ -0,0 +1,141 @@
+package ru.practicum;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Буфер хитов с фоновой отправкой пачками: пачка уходит на сервер статистики,
+ * когда набрано batchSize записей или истёк flushIntervalMs с момента первой записи в пачке.
+ * При переполнении очереди поведение определяется {@link HitOverflowPolicy}:
+ * DROP - хит отбрасывается, BLOCK - вызывающий поток ждёт места в очереди,
+ * SPILL - хит отправляется синхронно в вызывающем потоке.
+ */
+@Slf4j
+public class HitBatchSender {
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000L;
+    private final BlockingQueue<NewEndpointHitDto> queue;
+    private final Consumer<List<NewEndpointHitDto>> sender;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final HitOverflowPolicy overflowPolicy;
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public HitBatchSender(Consumer<List<NewEndpointHitDto>> sender, int capacity, int batchSize,
+                          long flushIntervalMs, HitOverflowPolicy overflowPolicy) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.worker = new Thread(this::run, "stats-hit-sender");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public void add(NewEndpointHitDto hitDto) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(hitDto);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+            }
+            case SPILL -> {
+                if (!queue.offer(hitDto)) {
+                    send(List.of(hitDto));
+                    return;
+                }
+            }
+            default -> {
+                if (!queue.offer(hitDto)) {
+                    droppedCount.incrementAndGet();
+                    log.warn("Очередь хитов переполнена, запись отброшена hitDto={}", hitDto);
+                    return;
+                }
+            }
+        }
+        queuedCount.incrementAndGet();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public void close() {
+        running = false;
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<NewEndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                NewEndpointHitDto first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    NewEndpointHitDto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void send(List<NewEndpointHitDto> batch) {
+        try {
+            sender.accept(batch);
+            sentCount.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            droppedCount.addAndGet(batch.size());
+            log.error("Не удалось отправить пачку хитов в сервис статистики, size={}", batch.size(), e);
+        }
+    }
+}
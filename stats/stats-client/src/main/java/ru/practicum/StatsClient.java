@@ -1,7 +1,14 @@
 package ru.practicum;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
@@ -10,6 +17,7 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
@@ -17,18 +25,27 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class StatsClient {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final ObjectReader VIEW_STATS_READER = new ObjectMapper().readerFor(ViewStatsDto.class);
     private final String baseUrl;
     private final RestClient restClient;
+    private final HitBatchSender hitSender;
 
     @Autowired
-    public StatsClient(@Value("${statsServer.url}") String baseUrl) {
+    public StatsClient(@Value("${statsServer.url}") String baseUrl,
+                       @Value("${statsServer.hits.async:false}") boolean asyncHits,
+                       @Value("${statsServer.hits.queueCapacity:10000}") int queueCapacity,
+                       @Value("${statsServer.hits.batchSize:100}") int batchSize,
+                       @Value("${statsServer.hits.flushIntervalMs:1000}") long flushIntervalMs,
+                       @Value("${statsServer.hits.overflowPolicy:DROP}") HitOverflowPolicy overflowPolicy,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
         this.baseUrl = baseUrl;
         restClient = RestClient.builder()
                 .baseUrl(baseUrl)
@@ -40,6 +57,25 @@ public class StatsClient {
                     );
                 }))
                 .build();
+
+        if (asyncHits) {
+            if (batchSize > NewEndpointHitDto.MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("statsServer.hits.batchSize не должен превышать "
+                        + NewEndpointHitDto.MAX_BATCH_SIZE);
+            }
+            hitSender = new HitBatchSender(this::hitBatch, queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+            meterRegistry.ifAvailable(this::bindHitMetrics);
+        } else {
+            hitSender = null;
+        }
+    }
+
+    public void registerHit(NewEndpointHitDto hitDto) {
+        if (hitSender == null) {
+            hit(hitDto);
+            return;
+        }
+        hitSender.add(hitDto);
     }
 
     public EndpointHitDto hit(NewEndpointHitDto hitDto) {
@@ -55,9 +91,82 @@ public class StatsClient {
         return resp;
     }
 
+    public HitBatchResultDto hitBatch(List<NewEndpointHitDto> hitDtos) {
+        log.debug("Клиентом статистики stats-client получен запрос на добавление пачки записей, size={}", hitDtos.size());
+        HitBatchResultDto resp = restClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/hit/batch").build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(hitDtos)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .body(HitBatchResultDto.class);
+        log.debug("Клиентом статистики stats-client получен ответ от сервера {}", resp);
+        return resp;
+    }
+
     public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
         log.info("Клиентом статистики stats-client получен запрос на предоставление статистики hitDto={}, hitDto={}, hitDto={}, hitDto={}", start, end, uris, unique);
+        return restClient.get()
+                .uri(statsUri(start, end, uris, unique))
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+    }
+
+    /**
+     * Потоковая выдача статистики в формате NDJSON: строки передаются обработчику по мере чтения ответа,
+     * не накапливаясь в памяти. В отличие от getStats, строки не упорядочены по числу просмотров.
+     */
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            Consumer<ViewStatsDto> consumer) {
+        log.info("Клиентом статистики stats-client получен запрос на потоковую выдачу статистики start={}, end={}, uris={}, unique={}", start, end, uris, unique);
+        restClient.get()
+                .uri(statsUri(start, end, uris, unique))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange((request, response) -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        throw new RestClientResponseException("Api request was failed", response.getStatusCode(),
+                                response.getStatusText(), response.getHeaders(), response.getBody().readAllBytes(),
+                                StandardCharsets.UTF_8);
+                    }
+                    try (MappingIterator<ViewStatsDto> rows = VIEW_STATS_READER.readValues(response.getBody())) {
+                        rows.forEachRemaining(consumer);
+                    }
+                    return null;
+                });
+    }
+
+    public Map<String, Long> getStatsByUri(List<UriSinceDto> uris, LocalDateTime end, Boolean unique) {
+        log.info("Клиентом статистики stats-client получен запрос на предоставление статистики по uri, uris={}, end={}, unique={}", uris, end, unique);
+        return restClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/stats/uris").build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new UriStatsRequestDto(uris, end, unique, false))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+    }
+
+    public UriChangesDto getUriChanges(String app, String cursor, int limit) {
+        log.debug("Клиентом статистики stats-client получен запрос на изменившиеся uri, app={}, cursor={}, limit={}", app, cursor, limit);
         URI uri = UriComponentsBuilder
+                .fromUriString(baseUrl + "/stats/changes")
+                .queryParam("app", app)
+                .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                .queryParam("limit", limit)
+                .build()
+                .toUri();
+
+        return restClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .body(UriChangesDto.class);
+    }
+
+    private URI statsUri(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return UriComponentsBuilder
                 .fromUriString(baseUrl + "/stats")
                 .queryParam("start", start.format(DATE_TIME_FORMATTER))
                 .queryParam("end", end.format(DATE_TIME_FORMATTER))
@@ -65,11 +174,26 @@ public class StatsClient {
                 .queryParamIfPresent("uris", Optional.ofNullable(CollectionUtils.isEmpty(uris) ? null : uris))
                 .build()
                 .toUri();
+    }
 
-        return restClient.get()
-                .uri(uri)
-                .retrieve()
-                .body(new ParameterizedTypeReference<>() {
-                });
+    @PreDestroy
+    public void close() {
+        if (hitSender != null) {
+            hitSender.close();
+        }
+    }
+
+    private void bindHitMetrics(MeterRegistry registry) {
+        Gauge.builder("stats.client.hits.pending", hitSender, HitBatchSender::getQueueSize)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits", hitSender, HitBatchSender::getQueuedCount)
+                .tag("state", "queued")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits", hitSender, HitBatchSender::getSentCount)
+                .tag("state", "sent")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits", hitSender, HitBatchSender::getDroppedCount)
+                .tag("state", "dropped")
+                .register(registry);
     }
 }
@@ -7,6 +7,10 @@ import lombok.Data;
 @Data
 @AllArgsConstructor
 public class NewEndpointHitDto {
+    /**
+     * Наибольшее число хитов в одном запросе POST /hit/batch.
+     */
+    public static final int MAX_BATCH_SIZE = 100;
 
     @NotBlank(message = "Значение не должно быть пустым")
     private String app;
@@ -0,0 +1,21 @@
+package ru.practicum;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UriSinceDto {
+
+    @NotBlank(message = "Значение не должно быть пустым")
+    private String uri;
+
+    @NotNull(message = "Значение не должно быть пустым")
+    private LocalDateTime since;
+}
@@ -0,0 +1,27 @@
+package ru.practicum;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UriStatsRequestDto {
+
+    @NotEmpty(message = "Список uri не должен быть пустым")
+    private List<@Valid UriSinceDto> uris;
+
+    @NotNull(message = "Значение не должно быть пустым")
+    private LocalDateTime end;
+
+    private Boolean unique = false;
+
+    private Boolean exact = false;
+}
@@ -2,8 +2,10 @@ package ru.practicum;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class ViewStatsDto {
     private String app;
@@ -1,24 +1,39 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.EndpointHitDto;
+import ru.practicum.HitBatchResultDto;
 import ru.practicum.NewEndpointHitDto;
+import ru.practicum.UriChangesDto;
+import ru.practicum.UriStatsRequestDto;
 import ru.practicum.ViewStatsDto;
 import ru.practicum.service.StatsService;
+import ru.practicum.service.StatsStream;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -27,12 +42,63 @@ public class StatsController {
         return statsService.createEndpointHit(newEndpointHitDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto saveEndpointHits(@RequestBody @NotEmpty
+                                              @Size(max = NewEndpointHitDto.MAX_BATCH_SIZE,
+                                                      message = "Пачка не должна превышать {max} записей")
+                                              List<@Valid NewEndpointHitDto> newEndpointHitDtos) {
+        log.info("Сервер статистики stats-server получил запрос на добавление пачки записей, size={}", newEndpointHitDtos.size());
+        return statsService.createEndpointHits(newEndpointHitDtos);
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(defaultValue = "false") Boolean unique) {
-        log.info("Сервер статистики stats-server получил запрос на предоставление статистики, start={}, end={}, uris={}, unique={}", start, end, uris, unique);
-        return statsService.getStats(start, end, uris, unique);
+                                       @RequestParam(defaultValue = "false") Boolean unique,
+                                       @RequestParam(defaultValue = "false") Boolean exact) {
+        log.info("Сервер статистики stats-server получил запрос на предоставление статистики, start={}, end={}, uris={}, unique={}, exact={}", start, end, uris, unique, exact);
+        return statsService.getStats(start, end, uris, unique, exact);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                             @RequestParam(required = false) List<String> uris,
+                                             @RequestParam(defaultValue = "false") Boolean unique,
+                                             @RequestParam(defaultValue = "false") Boolean exact) {
+        log.info("Сервер статистики stats-server получил запрос на потоковую выдачу статистики, start={}, end={}, uris={}, unique={}, exact={}", start, end, uris, unique, exact);
+        StatsStream stats = statsService.streamStats(start, end, uris, unique, exact);
+        return out -> {
+            AtomicBoolean first = new AtomicBoolean(true);
+            stats.forEach(viewStats -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(viewStats));
+                    out.write('\n');
+                    // первая строка уходит клиенту сразу, дальше буферизацию берёт на себя контейнер
+                    if (first.compareAndSet(true, false)) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+    }
+
+    @GetMapping("/stats/changes")
+    public UriChangesDto getUriChanges(@RequestParam String app,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "1000") @Positive Integer limit) {
+        log.info("Сервер статистики stats-server получил запрос на изменившиеся uri, app={}, cursor={}, limit={}", app, cursor, limit);
+        return statsService.getUriChanges(app, cursor, limit);
+    }
+
+    @PostMapping("/stats/uris")
+    public Map<String, Long> getStatsByUri(@RequestBody @Valid UriStatsRequestDto request) {
+        log.info("Сервер статистики stats-server получил запрос на предоставление статистики по uri, request={}", request);
+        return statsService.getStatsByUri(request);
     }
 }
@@ -8,12 +8,18 @@ import ru.practicum.EndpointHitDto;
 import ru.practicum.NewEndpointHitDto;
 import ru.practicum.model.EndpointHit;
 
+import java.util.List;
+
 @Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
 public interface StatsMapper {
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "appId", ignore = true)
+    @Mapping(target = "uriId", ignore = true)
     @Mapping(target = "timestamp", source = "timestamp", dateFormat = "yyyy-MM-dd HH:mm:ss")
     EndpointHit mapToEndpointHit(NewEndpointHitDto dto);
 
+    List<EndpointHit> mapToEndpointHits(List<NewEndpointHitDto> dtos);
+
 
     EndpointHitDto mapToEndpointHitDto(EndpointHit endpointHit);
 }
@@ -0,0 +1,13 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum DictionaryTable {
+    APP("stats_app"),
+    URI("stats_uri");
+
+    private final String tableName;
+}
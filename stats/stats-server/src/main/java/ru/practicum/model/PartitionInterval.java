@@ -0,0 +1,29 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+@Getter
+@RequiredArgsConstructor
+public enum PartitionInterval {
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormatter;
+
+    public LocalDate truncate(LocalDate date) {
+        return this == MONTH ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+    }
+
+    public LocalDate parseSuffix(String suffix) {
+        return this == MONTH
+                ? LocalDate.parse(suffix + "01", DAY.suffixFormatter)
+                : LocalDate.parse(suffix, suffixFormatter);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+    MINUTE("endpoint_hit_minute", ChronoUnit.MINUTES),
+    HOUR("endpoint_hit_hour", ChronoUnit.HOURS);
+
+    private final String tableName;
+    private final ChronoUnit unit;
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record StatsKey(Integer appId, Integer uriId) {
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record TimeRange(LocalDateTime start, LocalDateTime end) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record UriChange(Long changedXid, Integer uriId) {
+}
@@ -0,0 +1,6 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+public record UriRange(Integer uriId, LocalDateTime start, LocalDateTime end) {
+}
@@ -0,0 +1,74 @@
+package ru.practicum.repository;
+
+import ru.practicum.ViewStatsDto;
+import ru.practicum.model.DictionaryTable;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.StatsKey;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.UriChange;
+import ru.practicum.model.UriRange;
+import ru.practicum.util.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public interface StatsRepositoryCustom {
+    int insertAll(List<EndpointHit> hits);
+
+    void addToRollups(List<EndpointHit> hits, int sketchPrecision);
+
+    void markUrisChanged(List<EndpointHit> hits);
+
+    List<UriChange> findUriChanges(Integer appId, UriChange after, int limit);
+
+    Map<StatsKey, Long> countHits(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds);
+
+    Map<StatsKey, Long> countUniqueIps(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds);
+
+    Map<StatsKey, Long> sumRollupHits(RollupGranularity granularity, LocalDateTime start, LocalDateTime end,
+                                      Collection<Integer> uriIds);
+
+    void forEachIpSketch(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                         BiConsumer<StatsKey, HyperLogLog> consumer);
+
+    void forEachHitIp(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                      BiConsumer<StatsKey, String> consumer);
+
+    Map<Integer, Long> countHitsByUri(List<UriRange> ranges);
+
+    Map<Integer, Long> countUniqueIpsByUri(List<UriRange> ranges);
+
+    Map<Integer, Long> sumRollupHitsByUri(RollupGranularity granularity, List<UriRange> ranges);
+
+    void forEachIpSketchByUri(List<UriRange> ranges, BiConsumer<Integer, HyperLogLog> consumer);
+
+    void forEachHitIpByUri(List<UriRange> ranges, BiConsumer<Integer, String> consumer);
+
+    void streamHits(List<TimeRange> raw, List<TimeRange> minutes, List<TimeRange> hours, Collection<Integer> uriIds,
+                    Consumer<ViewStatsDto> consumer);
+
+    void streamUniqueIps(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                         Consumer<ViewStatsDto> consumer);
+
+    void streamIpSketches(List<TimeRange> hours, List<TimeRange> raw, Collection<Integer> uriIds,
+                          IpSketchRowHandler handler);
+
+    void insertDictionaryValues(DictionaryTable table, Collection<String> values);
+
+    Map<String, Integer> findDictionaryIds(DictionaryTable table, Collection<String> values);
+
+    Map<Integer, String> findDictionaryValues(DictionaryTable table, Collection<Integer> ids);
+
+    /**
+     * Строка потока уникальных ip: либо часовой скетч, либо ip сырого хита, упорядочено по ключу.
+     */
+    @FunctionalInterface
+    interface IpSketchRowHandler {
+        void accept(StatsKey key, HyperLogLog sketch, String ip);
+    }
+}
@@ -0,0 +1,476 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import ru.practicum.ViewStatsDto;
+import ru.practicum.model.DictionaryTable;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.StatsKey;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.UriChange;
+import ru.practicum.model.UriRange;
+import ru.practicum.util.HyperLogLog;
+import ru.practicum.util.IpAddresses;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public class StatsRepositoryCustomImpl implements StatsRepositoryCustom {
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SQL = "insert into endpoint_hit (app_id, uri_id, ip, \"timestamp\") values (?, ?, ?::inet, ?)";
+    private static final String MINUTE_UPSERT_SQL = "insert into endpoint_hit_minute (app_id, uri_id, bucket, hits) values (?, ?, ?, ?) " +
+                                                    "on conflict (bucket, app_id, uri_id) do update " +
+                                                    "set hits = endpoint_hit_minute.hits + excluded.hits";
+    private static final String HOUR_INSERT_SQL = "insert into endpoint_hit_hour (app_id, uri_id, bucket, hits, ip_sketch) " +
+                                                  "values (?, ?, ?, 0, ''::bytea) on conflict (bucket, app_id, uri_id) do nothing";
+    private static final String HOUR_UPDATE_SQL = "update endpoint_hit_hour set hits = hits + ?, ip_sketch = ? " +
+                                                  "where bucket = ? and app_id = ? and uri_id = ?";
+    private static final String URI_CHANGE_UPSERT_SQL = "insert into endpoint_uri_change (app_id, uri_id, changed_xid) " +
+                                                        "values (?, ?, pg_current_xact_id()::text::bigint) " +
+                                                        "on conflict (app_id, uri_id) do update set changed_xid = excluded.changed_xid";
+    private static final Comparator<RollupKey> ROLLUP_KEY_ORDER = Comparator.comparing(RollupKey::bucket)
+            .thenComparing(RollupKey::appId)
+            .thenComparing(RollupKey::uriId);
+    private static final RowMapper<ViewStatsDto> VIEW_STATS_ROW_MAPPER = (rs, rowNum) ->
+            new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamJdbcTemplate;
+
+    public StatsRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedJdbcTemplate,
+                                     @Value("${stats.stream.fetchSize:1000}") int streamFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        // PostgreSQL читает результат курсором порциями по fetchSize только внутри транзакции
+        JdbcTemplate streamTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamTemplate.setFetchSize(streamFetchSize);
+        this.streamJdbcTemplate = new NamedParameterJdbcTemplate(streamTemplate);
+    }
+
+    /**
+     * Ключи новых строк записываются в id переданных хитов.
+     */
+    @Override
+    public int insertAll(List<EndpointHit> hits) {
+        for (int from = 0; from < hits.size(); from += BATCH_SIZE) {
+            insertChunk(hits.subList(from, Math.min(from + BATCH_SIZE, hits.size())));
+        }
+        return hits.size();
+    }
+
+    @Override
+    public void addToRollups(List<EndpointHit> hits, int sketchPrecision) {
+        // ключи упорядочены, чтобы параллельные upsert-ы брали блокировки строк в одном порядке
+        Map<RollupKey, Long> minuteCounts = new TreeMap<>(ROLLUP_KEY_ORDER);
+        Map<RollupKey, RollupValue> hourValues = new TreeMap<>(ROLLUP_KEY_ORDER);
+        for (EndpointHit hit : hits) {
+            minuteCounts.merge(rollupKey(hit, RollupGranularity.MINUTE), 1L, Long::sum);
+            RollupValue hourValue = hourValues.computeIfAbsent(rollupKey(hit, RollupGranularity.HOUR),
+                    key -> new RollupValue(new HyperLogLog(sketchPrecision)));
+            hourValue.hits++;
+            hourValue.ipSketch.add(hit.getIp());
+        }
+
+        jdbcTemplate.batchUpdate(MINUTE_UPSERT_SQL, new ArrayList<>(minuteCounts.entrySet()), BATCH_SIZE, (ps, entry) -> {
+            ps.setInt(1, entry.getKey().appId());
+            ps.setInt(2, entry.getKey().uriId());
+            ps.setObject(3, entry.getKey().bucket());
+            ps.setLong(4, entry.getValue());
+        });
+
+        // недостающие строки часов создаются пустыми, затем все строки блокируются,
+        // и скетчи объединяются в памяти: запись целиком дешевле побайтового объединения в SQL
+        List<RollupKey> hourKeys = new ArrayList<>(hourValues.keySet());
+        jdbcTemplate.batchUpdate(HOUR_INSERT_SQL, hourKeys, BATCH_SIZE, (ps, key) -> {
+            ps.setInt(1, key.appId());
+            ps.setInt(2, key.uriId());
+            ps.setObject(3, key.bucket());
+        });
+        Map<RollupKey, byte[]> storedSketches = lockHourSketches(hourKeys);
+        jdbcTemplate.batchUpdate(HOUR_UPDATE_SQL, new ArrayList<>(hourValues.entrySet()), BATCH_SIZE, (ps, entry) -> {
+            HyperLogLog sketch = entry.getValue().ipSketch;
+            byte[] stored = storedSketches.get(entry.getKey());
+            if (stored != null && stored.length > 0) {
+                HyperLogLog merged = HyperLogLog.fromBytes(stored);
+                merged.merge(sketch);
+                sketch = merged;
+            }
+            ps.setLong(1, entry.getValue().hits);
+            ps.setBytes(2, sketch.toBytes());
+            ps.setObject(3, entry.getKey().bucket());
+            ps.setInt(4, entry.getKey().appId());
+            ps.setInt(5, entry.getKey().uriId());
+        });
+    }
+
+    @Override
+    public void markUrisChanged(List<EndpointHit> hits) {
+        Set<StatsKey> keys = new TreeSet<>(Comparator.comparing(StatsKey::appId).thenComparing(StatsKey::uriId));
+        hits.forEach(hit -> keys.add(new StatsKey(hit.getAppId(), hit.getUriId())));
+        jdbcTemplate.batchUpdate(URI_CHANGE_UPSERT_SQL, new ArrayList<>(keys), BATCH_SIZE, (ps, key) -> {
+            ps.setInt(1, key.appId());
+            ps.setInt(2, key.uriId());
+        });
+    }
+
+    /**
+     * Изменения упорядочены по номеру записавшей их транзакции. Отдаются только транзакции младше xmin текущего
+     * снимка: все они уже завершены, а новые записи получат больший номер, поэтому курсор ничего не пропускает.
+     * Курсор больше ещё не выданных номеров (база статистики создана заново) читается с начала.
+     */
+    @Override
+    public List<UriChange> findUriChanges(Integer appId, UriChange after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("appId", appId)
+                .addValue("limit", limit);
+        String afterFilter = "";
+        if (after != null) {
+            afterFilter = "and ((c.changed_xid, c.uri_id) > (:afterXid, :afterUriId) " +
+                          "or :afterXid >= pg_snapshot_xmax(pg_current_snapshot())::text::bigint) ";
+            params.addValue("afterXid", after.changedXid()).addValue("afterUriId", after.uriId());
+        }
+        String sql = "select c.changed_xid, c.uri_id from endpoint_uri_change c " +
+                     "where c.app_id = :appId " +
+                     "and c.changed_xid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint " +
+                     afterFilter +
+                     "order by c.changed_xid, c.uri_id " +
+                     "limit :limit";
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new UriChange(rs.getLong("changed_xid"), rs.getInt("uri_id")));
+    }
+
+    @Override
+    public Map<StatsKey, Long> countHits(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        String sql = "select eh.app_id, eh.uri_id, count(*) as hits from endpoint_hit eh " +
+                     "where eh.\"timestamp\" >= :start and eh.\"timestamp\" < :end " +
+                     uriFilter("eh", uriIds) +
+                     "group by eh.app_id, eh.uri_id";
+        return queryHits(sql, rangeParams(start, end, uriIds));
+    }
+
+    @Override
+    public Map<StatsKey, Long> countUniqueIps(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        String sql = "select eh.app_id, eh.uri_id, count(distinct eh.ip) as hits from endpoint_hit eh " +
+                     "where eh.\"timestamp\" >= :start and eh.\"timestamp\" < :end " +
+                     uriFilter("eh", uriIds) +
+                     "group by eh.app_id, eh.uri_id";
+        return queryHits(sql, rangeParams(start, end, uriIds));
+    }
+
+    @Override
+    public Map<StatsKey, Long> sumRollupHits(RollupGranularity granularity, LocalDateTime start, LocalDateTime end,
+                                             Collection<Integer> uriIds) {
+        String sql = "select r.app_id, r.uri_id, sum(r.hits) as hits from " + granularity.getTableName() + " r " +
+                     "where r.bucket >= :start and r.bucket < :end " +
+                     uriFilter("r", uriIds) +
+                     "group by r.app_id, r.uri_id";
+        return queryHits(sql, rangeParams(start, end, uriIds));
+    }
+
+    @Override
+    public void forEachIpSketch(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                                BiConsumer<StatsKey, HyperLogLog> consumer) {
+        String sql = "select r.app_id, r.uri_id, r.ip_sketch from endpoint_hit_hour r " +
+                     "where r.bucket >= :start and r.bucket < :end " +
+                     uriFilter("r", uriIds);
+        namedJdbcTemplate.query(sql, rangeParams(start, end, uriIds), (RowCallbackHandler) rs ->
+                consumer.accept(statsKey(rs), HyperLogLog.fromBytes(rs.getBytes("ip_sketch"))));
+    }
+
+    @Override
+    public void forEachHitIp(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                             BiConsumer<StatsKey, String> consumer) {
+        String sql = "select distinct eh.app_id, eh.uri_id, host(eh.ip) as ip from endpoint_hit eh " +
+                     "where eh.\"timestamp\" >= :start and eh.\"timestamp\" < :end " +
+                     uriFilter("eh", uriIds);
+        namedJdbcTemplate.query(sql, rangeParams(start, end, uriIds), (RowCallbackHandler) rs ->
+                consumer.accept(statsKey(rs), IpAddresses.normalize(rs.getString("ip"))));
+    }
+
+    @Override
+    public Map<Integer, Long> countHitsByUri(List<UriRange> ranges) {
+        String sql = "select q.uri_id, count(*) as hits from endpoint_hit eh " +
+                     "join (values :ranges) as q(uri_id, range_start, range_end) " +
+                     "on eh.uri_id = q.uri_id and eh.\"timestamp\" >= q.range_start and eh.\"timestamp\" < q.range_end " +
+                     "group by q.uri_id";
+        return queryHitsByUri(sql, ranges);
+    }
+
+    @Override
+    public Map<Integer, Long> countUniqueIpsByUri(List<UriRange> ranges) {
+        String sql = "select q.uri_id, count(distinct eh.ip) as hits from endpoint_hit eh " +
+                     "join (values :ranges) as q(uri_id, range_start, range_end) " +
+                     "on eh.uri_id = q.uri_id and eh.\"timestamp\" >= q.range_start and eh.\"timestamp\" < q.range_end " +
+                     "group by q.uri_id";
+        return queryHitsByUri(sql, ranges);
+    }
+
+    @Override
+    public Map<Integer, Long> sumRollupHitsByUri(RollupGranularity granularity, List<UriRange> ranges) {
+        String sql = "select q.uri_id, sum(r.hits) as hits from " + granularity.getTableName() + " r " +
+                     "join (values :ranges) as q(uri_id, range_start, range_end) " +
+                     "on r.uri_id = q.uri_id and r.bucket >= q.range_start and r.bucket < q.range_end " +
+                     "group by q.uri_id";
+        return queryHitsByUri(sql, ranges);
+    }
+
+    @Override
+    public void forEachIpSketchByUri(List<UriRange> ranges, BiConsumer<Integer, HyperLogLog> consumer) {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        String sql = "select q.uri_id, r.ip_sketch from endpoint_hit_hour r " +
+                     "join (values :ranges) as q(uri_id, range_start, range_end) " +
+                     "on r.uri_id = q.uri_id and r.bucket >= q.range_start and r.bucket < q.range_end";
+        namedJdbcTemplate.query(sql, uriRangeParams(ranges), (RowCallbackHandler) rs ->
+                consumer.accept(rs.getInt("uri_id"), HyperLogLog.fromBytes(rs.getBytes("ip_sketch"))));
+    }
+
+    @Override
+    public void forEachHitIpByUri(List<UriRange> ranges, BiConsumer<Integer, String> consumer) {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        String sql = "select distinct q.uri_id, host(eh.ip) as ip from endpoint_hit eh " +
+                     "join (values :ranges) as q(uri_id, range_start, range_end) " +
+                     "on eh.uri_id = q.uri_id and eh.\"timestamp\" >= q.range_start and eh.\"timestamp\" < q.range_end";
+        namedJdbcTemplate.query(sql, uriRangeParams(ranges), (RowCallbackHandler) rs ->
+                consumer.accept(rs.getInt("uri_id"), IpAddresses.normalize(rs.getString("ip"))));
+    }
+
+    /**
+     * Строки отдаются без сортировки: сортировка по числу просмотров заставила бы дочитать и упорядочить
+     * весь результат до первой строки.
+     */
+    @Override
+    public void streamHits(List<TimeRange> raw, List<TimeRange> minutes, List<TimeRange> hours,
+                           Collection<Integer> uriIds, Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource("uriIds", uriIds);
+        List<String> parts = new ArrayList<>();
+        if (!raw.isEmpty()) {
+            parts.add("select eh.app_id, eh.uri_id, count(*) as hits from endpoint_hit eh " +
+                      "where " + rangesCondition("eh.\"timestamp\"", raw, "raw", params) + " " +
+                      uriFilter("eh", uriIds) +
+                      "group by eh.app_id, eh.uri_id");
+        }
+        if (!minutes.isEmpty()) {
+            parts.add(rollupPart(RollupGranularity.MINUTE, minutes, uriIds, params));
+        }
+        if (!hours.isEmpty()) {
+            parts.add(rollupPart(RollupGranularity.HOUR, hours, uriIds, params));
+        }
+
+        String sql = "select a.value as app, u.value as uri, t.hits from (" +
+                     "select p.app_id, p.uri_id, sum(p.hits) as hits from (" + String.join(" union all ", parts) + ") p " +
+                     "group by p.app_id, p.uri_id) t " +
+                     "join stats_app a on a.id = t.app_id " +
+                     "join stats_uri u on u.id = t.uri_id";
+        streamJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(VIEW_STATS_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    @Override
+    public void streamUniqueIps(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds,
+                                Consumer<ViewStatsDto> consumer) {
+        String sql = "select a.value as app, u.value as uri, t.hits from (" +
+                     "select eh.app_id, eh.uri_id, count(distinct eh.ip) as hits from endpoint_hit eh " +
+                     "where eh.\"timestamp\" >= :start and eh.\"timestamp\" < :end " +
+                     uriFilter("eh", uriIds) +
+                     "group by eh.app_id, eh.uri_id) t " +
+                     "join stats_app a on a.id = t.app_id " +
+                     "join stats_uri u on u.id = t.uri_id";
+        streamJdbcTemplate.query(sql, rangeParams(start, end, uriIds), (RowCallbackHandler) rs ->
+                consumer.accept(VIEW_STATS_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    @Override
+    public void streamIpSketches(List<TimeRange> hours, List<TimeRange> raw, Collection<Integer> uriIds,
+                                 IpSketchRowHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource("uriIds", uriIds);
+        String sql = "select r.app_id, r.uri_id, r.ip_sketch, null as ip from endpoint_hit_hour r " +
+                     "where " + rangesCondition("r.bucket", hours, "hour", params) + " " +
+                     uriFilter("r", uriIds) +
+                     "union all " +
+                     "select distinct eh.app_id, eh.uri_id, null, host(eh.ip) from endpoint_hit eh " +
+                     "where " + rangesCondition("eh.\"timestamp\"", raw, "raw", params) + " " +
+                     uriFilter("eh", uriIds) +
+                     "order by 1, 2";
+        streamJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            byte[] sketch = rs.getBytes("ip_sketch");
+            String ip = rs.getString("ip");
+            handler.accept(statsKey(rs), sketch == null ? null : HyperLogLog.fromBytes(sketch),
+                    ip == null ? null : IpAddresses.normalize(ip));
+        });
+    }
+
+    @Override
+    public void insertDictionaryValues(DictionaryTable table, Collection<String> values) {
+        // значения отсортированы, чтобы параллельные вставки брали блокировки уникального индекса в одном порядке
+        String sql = "insert into " + table.getTableName() + " (value) values (?) on conflict (value) do nothing";
+        jdbcTemplate.batchUpdate(sql, new ArrayList<>(new TreeSet<>(values)), BATCH_SIZE,
+                (ps, value) -> ps.setString(1, value));
+    }
+
+    @Override
+    public Map<String, Integer> findDictionaryIds(DictionaryTable table, Collection<String> values) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (values.isEmpty()) {
+            return ids;
+        }
+        String sql = "select d.id, d.value from " + table.getTableName() + " d where d.value in (:values)";
+        namedJdbcTemplate.query(sql, new MapSqlParameterSource("values", values), (RowCallbackHandler) rs ->
+                ids.put(rs.getString("value"), rs.getInt("id")));
+        return ids;
+    }
+
+    @Override
+    public Map<Integer, String> findDictionaryValues(DictionaryTable table, Collection<Integer> ids) {
+        Map<Integer, String> values = new HashMap<>();
+        if (ids.isEmpty()) {
+            return values;
+        }
+        String sql = "select d.id, d.value from " + table.getTableName() + " d where d.id in (:ids)";
+        namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids), (RowCallbackHandler) rs ->
+                values.put(rs.getInt("id"), rs.getString("value")));
+        return values;
+    }
+
+    private void insertChunk(List<EndpointHit> hits) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        EndpointHit hit = hits.get(i);
+                        ps.setInt(1, hit.getAppId());
+                        ps.setInt(2, hit.getUriId());
+                        ps.setString(3, hit.getIp());
+                        ps.setObject(4, hit.getTimestamp());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return hits.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < hits.size(); i++) {
+            hits.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+    }
+
+    private Map<RollupKey, byte[]> lockHourSketches(List<RollupKey> keys) {
+        Map<RollupKey, byte[]> sketches = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+            List<Object[]> values = keys.subList(from, Math.min(from + BATCH_SIZE, keys.size())).stream()
+                    .map(key -> new Object[]{key.appId(), key.uriId(), key.bucket()})
+                    .toList();
+            String sql = "select r.app_id, r.uri_id, r.bucket, r.ip_sketch from endpoint_hit_hour r " +
+                         "join (values :keys) as k(app_id, uri_id, bucket) " +
+                         "on r.app_id = k.app_id and r.uri_id = k.uri_id and r.bucket = k.bucket " +
+                         "order by r.bucket, r.app_id, r.uri_id " +
+                         "for update of r";
+            namedJdbcTemplate.query(sql, new MapSqlParameterSource("keys", values), (RowCallbackHandler) rs ->
+                    sketches.put(new RollupKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getObject("bucket", LocalDateTime.class)), rs.getBytes("ip_sketch")));
+        }
+        return sketches;
+    }
+
+    private Map<StatsKey, Long> queryHits(String sql, MapSqlParameterSource params) {
+        Map<StatsKey, Long> hits = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                hits.merge(statsKey(rs), rs.getLong("hits"), Long::sum));
+        return hits;
+    }
+
+    private Map<Integer, Long> queryHitsByUri(String sql, List<UriRange> ranges) {
+        Map<Integer, Long> hits = new HashMap<>();
+        if (ranges.isEmpty()) {
+            return hits;
+        }
+        namedJdbcTemplate.query(sql, uriRangeParams(ranges), (RowCallbackHandler) rs ->
+                hits.merge(rs.getInt("uri_id"), rs.getLong("hits"), Long::sum));
+        return hits;
+    }
+
+    private String rollupPart(RollupGranularity granularity, List<TimeRange> ranges, Collection<Integer> uriIds,
+                              MapSqlParameterSource params) {
+        String alias = granularity.name().toLowerCase();
+        return "select " + alias + ".app_id, " + alias + ".uri_id, sum(" + alias + ".hits) as hits " +
+               "from " + granularity.getTableName() + " " + alias + " " +
+               "where " + rangesCondition(alias + ".bucket", ranges, alias, params) + " " +
+               uriFilter(alias, uriIds) +
+               "group by " + alias + ".app_id, " + alias + ".uri_id";
+    }
+
+    private String rangesCondition(String column, List<TimeRange> ranges, String prefix, MapSqlParameterSource params) {
+        if (ranges.isEmpty()) {
+            return "false";
+        }
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            String start = prefix + "Start" + i;
+            String end = prefix + "End" + i;
+            params.addValue(start, ranges.get(i).start()).addValue(end, ranges.get(i).end());
+            conditions.add(column + " >= :" + start + " and " + column + " < :" + end);
+        }
+        return "(" + String.join(" or ", conditions) + ")";
+    }
+
+    private StatsKey statsKey(ResultSet rs) throws SQLException {
+        return new StatsKey(rs.getInt("app_id"), rs.getInt("uri_id"));
+    }
+
+    private MapSqlParameterSource rangeParams(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        return new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end)
+                .addValue("uriIds", uriIds);
+    }
+
+    private MapSqlParameterSource uriRangeParams(List<UriRange> ranges) {
+        List<Object[]> values = ranges.stream()
+                .map(range -> new Object[]{range.uriId(), range.start(), range.end()})
+                .toList();
+        return new MapSqlParameterSource("ranges", values);
+    }
+
+    private String uriFilter(String alias, Collection<Integer> uriIds) {
+        return uriIds == null || uriIds.isEmpty() ? "" : "and " + alias + ".uri_id in (:uriIds) ";
+    }
+
+    private RollupKey rollupKey(EndpointHit hit, RollupGranularity granularity) {
+        return new RollupKey(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(granularity.getUnit()));
+    }
+
+    private record RollupKey(Integer appId, Integer uriId, LocalDateTime bucket) {
+    }
+
+    @RequiredArgsConstructor
+    private static class RollupValue {
+        private final HyperLogLog ipSketch;
+        private long hits;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.StatsRepository;
+import ru.practicum.util.HyperLogLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Запись хитов с групповой фиксацией. Строки агрегатов горячего uri блокируются каждой записью до конца её
+ * транзакции, поэтому запросы, пришедшие во время чужой записи, копятся и пишутся следующим держателем блокировки
+ * одной транзакцией: приращения агрегатов и отметки изменений суммируются по всей группе.
+ * Запрос возвращается только после фиксации своей группы, так что записанный хит сразу виден в статистике.
+ * Группы пишутся по одной, поэтому параллельно идёт не больше одной транзакции записи.
+ */
+@Slf4j
+@Component
+public class HitWriter {
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate writeTransaction;
+    private final int sketchPrecision;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object pendingLock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+
+    public HitWriter(StatsRepository statsRepository,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${stats.unique.errorRate:0.02}") double uniqueErrorRate) {
+        this.statsRepository = statsRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.sketchPrecision = HyperLogLog.precisionForError(uniqueErrorRate);
+    }
+
+    /**
+     * Записывает хиты и проставляет им id. Ключи словарей должны быть получены заранее.
+     */
+    public void write(List<EndpointHit> hits) {
+        PendingWrite write = new PendingWrite(hits, new CompletableFuture<>());
+        synchronized (pendingLock) {
+            pending.add(write);
+        }
+        writeLock.lock();
+        try {
+            if (!write.result().isDone()) {
+                List<PendingWrite> group;
+                synchronized (pendingLock) {
+                    group = pending;
+                    pending = new ArrayList<>();
+                }
+                writeGroup(group);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            write.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Если группу отклонила база, каждый запрос пишется отдельно, чтобы данные одного не отклонили остальные.
+     * Прочие ошибки (нет соединения, не открылась транзакция) завершают всю группу.
+     */
+    private void writeGroup(List<PendingWrite> group) {
+        try {
+            writeTransaction.executeWithoutResult(status ->
+                    insert(group.stream().flatMap(write -> write.hits().stream()).toList()));
+            group.forEach(write -> write.result().complete(null));
+        } catch (DataAccessException e) {
+            if (group.size() == 1) {
+                group.getFirst().result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Не удалось записать группу из {} запросов, запросы пишутся по одному", group.size(), e);
+            group.forEach(write -> writeGroup(List.of(write)));
+        } catch (RuntimeException e) {
+            group.forEach(write -> write.result().completeExceptionally(e));
+        }
+    }
+
+    private void insert(List<EndpointHit> hits) {
+        statsRepository.insertAll(hits);
+        statsRepository.addToRollups(hits, sketchPrecision);
+        statsRepository.markUrisChanged(hits);
+    }
+
+    private record PendingWrite(List<EndpointHit> hits, CompletableFuture<Void> result) {
+    }
+}
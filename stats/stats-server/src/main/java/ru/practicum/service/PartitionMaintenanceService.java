@@ -0,0 +1,137 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.PartitionInterval;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Обслуживание секций таблицы endpoint_hit: заранее создаёт секции на stats.partition.precreate интервалов вперёд
+ * и отсоединяет (DETACH) или удаляет (DROP) секции старше stats.partition.retention интервалов (0 - хранить всё).
+ * Хиты, попавшие в секцию по умолчанию, переносятся в секции своих интервалов, после чего на них действует
+ * срок хранения.
+ */
+@Slf4j
+@Service
+public class PartitionMaintenanceService {
+    private static final String TABLE_NAME = "endpoint_hit";
+    private static final String PARTITION_PREFIX = TABLE_NAME + "_p";
+    private static final String DEFAULT_PARTITION = TABLE_NAME + "_default";
+    private static final String PARTITIONS_SQL = "select c.relname from pg_inherits i " +
+                                                 "join pg_class c on c.oid = i.inhrelid " +
+                                                 "join pg_class p on p.oid = i.inhparent " +
+                                                 "where p.relname = ? and c.relname like ?";
+    private static final String DEFAULT_DATES_SQL = "select distinct \"timestamp\"::date from " + DEFAULT_PARTITION;
+    private static final String MOVE_FROM_DEFAULT_SQL = "with moved as (delete from " + DEFAULT_PARTITION + " " +
+                                                        "where \"timestamp\" >= ? and \"timestamp\" < ? returning *) " +
+                                                        "insert into %s select * from moved";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionInterval interval;
+    private final int precreate;
+    private final int retention;
+    private final boolean dropExpired;
+
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${stats.partition.interval:DAY}") PartitionInterval interval,
+                                       @Value("${stats.partition.precreate:7}") int precreate,
+                                       @Value("${stats.partition.retention:0}") int retention,
+                                       @Value("${stats.partition.retentionAction:DETACH}") String retentionAction) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.precreate = precreate;
+        this.retention = retention;
+        this.dropExpired = "DROP".equalsIgnoreCase(retentionAction);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partition.cron:0 5 * * * *}")
+    public void maintainPartitions() {
+        LocalDate current = interval.truncate(LocalDate.now());
+        Set<LocalDate> starts = new TreeSet<>();
+        for (int i = 0; i <= precreate; i++) {
+            starts.add(current.plus(i, interval.getUnit()));
+        }
+        jdbcTemplate.queryForList(DEFAULT_DATES_SQL, LocalDate.class)
+                .forEach(date -> starts.add(interval.truncate(date)));
+
+        Set<String> attached = new HashSet<>(
+                jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, TABLE_NAME, PARTITION_PREFIX + "%"));
+        for (LocalDate from : starts) {
+            String name = PARTITION_PREFIX + interval.getSuffixFormatter().format(from);
+            if (!attached.contains(name)) {
+                createPartition(name, from.atStartOfDay(), from.plus(1, interval.getUnit()).atStartOfDay());
+            }
+        }
+        if (retention > 0) {
+            removeExpiredPartitions(current.minus(retention, interval.getUnit()));
+        }
+    }
+
+    /**
+     * Секция собирается отдельной таблицей и присоединяется вместе с хитами своего интервала из секции
+     * по умолчанию: create table ... partition of не создаёт секцию, пока такие хиты там лежат.
+     * Секция по умолчанию блокируется, чтобы хиты интервала не попали в неё до присоединения.
+     * Одноимённая отсоединённая таблица (архив по сроку хранения или остаток от прежней схемы) переименовывается,
+     * чтобы не смешивать её строки с новыми.
+     */
+    private void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        try {
+            int moved = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("lock table " + DEFAULT_PARTITION + " in access exclusive mode");
+                if (jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name)) {
+                    String archive = name + "_" + System.currentTimeMillis();
+                    jdbcTemplate.execute("alter table " + name + " rename to " + archive);
+                    log.warn("Отсоединённая таблица {} переименована в {}", name, archive);
+                }
+                jdbcTemplate.execute("create table " + name + " (like " + TABLE_NAME + " including defaults)");
+                int rows = jdbcTemplate.update(MOVE_FROM_DEFAULT_SQL.formatted(name), from, to);
+                jdbcTemplate.execute("alter table " + TABLE_NAME + " attach partition " + name +
+                                     " for values from ('" + from + "') to ('" + to + "')");
+                return rows;
+            });
+            if (moved > 0) {
+                log.info("В секцию {} перенесено {} хитов из {}", name, moved, DEFAULT_PARTITION);
+            }
+        } catch (DataAccessException e) {
+            log.error("Не удалось создать секцию {} таблицы {}", name, TABLE_NAME, e);
+        }
+    }
+
+    private void removeExpiredPartitions(LocalDate threshold) {
+        List<String> partitions = jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, TABLE_NAME, PARTITION_PREFIX + "%");
+        for (String name : partitions) {
+            LocalDate from;
+            try {
+                from = interval.parseSuffix(name.substring(PARTITION_PREFIX.length()));
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (from.plus(1, interval.getUnit()).isAfter(threshold)) {
+                continue;
+            }
+            String sql = dropExpired
+                    ? "drop table if exists " + name
+                    : "alter table " + TABLE_NAME + " detach partition " + name;
+            jdbcTemplate.execute(sql);
+            log.info("Секция {} таблицы {} удалена по сроку хранения, действие: {}", name, TABLE_NAME, dropExpired ? "DROP" : "DETACH");
+        }
+    }
+}
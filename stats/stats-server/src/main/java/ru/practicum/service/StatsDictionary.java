@@ -0,0 +1,117 @@
+package ru.practicum.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.DictionaryTable;
+import ru.practicum.repository.StatsRepository;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш словарей приложений и uri: в таблицах хитов и агрегатов хранятся только их целочисленные ключи.
+ * Словари только пополняются, поэтому закэшированные пары никогда не устаревают.
+ */
+@Component
+public class StatsDictionary {
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<DictionaryTable, Map<String, Integer>> idsByValue = new EnumMap<>(DictionaryTable.class);
+    private final Map<DictionaryTable, Map<Integer, String>> valuesById = new EnumMap<>(DictionaryTable.class);
+
+    public StatsDictionary(StatsRepository statsRepository, PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (DictionaryTable table : DictionaryTable.values()) {
+            idsByValue.put(table, new ConcurrentHashMap<>());
+            valuesById.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Возвращает ключи значений, добавляя в словарь недостающие. Вызывается до транзакции записи хитов:
+     * новые значения фиксируются своей транзакцией, поэтому в кэш не попадут ключи, которые исчезнут при откате,
+     * а запрос не держит одновременно два соединения.
+     */
+    public Map<String, Integer> getOrCreateIds(DictionaryTable table, Collection<String> values) {
+        Map<String, Integer> ids = new HashMap<>();
+        Set<String> missing = collectCached(table, values, ids);
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Словарь пополняется только вне транзакции");
+        }
+
+        Map<String, Integer> created = transactionTemplate.execute(status -> {
+            statsRepository.insertDictionaryValues(table, missing);
+            return statsRepository.findDictionaryIds(table, missing);
+        });
+        cache(table, created);
+        ids.putAll(created);
+        return ids;
+    }
+
+    /**
+     * Возвращает ключи только известных значений, словарь не пополняется.
+     */
+    public Map<String, Integer> findIds(DictionaryTable table, Collection<String> values) {
+        Map<String, Integer> ids = new HashMap<>();
+        Set<String> missing = collectCached(table, values, ids);
+        if (!missing.isEmpty()) {
+            Map<String, Integer> found = statsRepository.findDictionaryIds(table, missing);
+            cache(table, found);
+            ids.putAll(found);
+        }
+        return ids;
+    }
+
+    public Map<Integer, String> getValues(DictionaryTable table, Collection<Integer> ids) {
+        Map<Integer, String> values = new HashMap<>();
+        Set<Integer> missing = new HashSet<>();
+        Map<Integer, String> cached = valuesById.get(table);
+        for (Integer id : ids) {
+            String value = cached.get(id);
+            if (value == null) {
+                missing.add(id);
+            } else {
+                values.put(id, value);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, String> found = statsRepository.findDictionaryValues(table, missing);
+            found.forEach((id, value) -> {
+                idsByValue.get(table).put(value, id);
+                cached.put(id, value);
+            });
+            values.putAll(found);
+        }
+        return values;
+    }
+
+    private Set<String> collectCached(DictionaryTable table, Collection<String> values, Map<String, Integer> ids) {
+        Set<String> missing = new HashSet<>();
+        Map<String, Integer> cached = idsByValue.get(table);
+        for (String value : values) {
+            Integer id = cached.get(value);
+            if (id == null) {
+                missing.add(value);
+            } else {
+                ids.put(value, id);
+            }
+        }
+        return missing;
+    }
+
+    private void cache(DictionaryTable table, Map<String, Integer> ids) {
+        idsByValue.get(table).putAll(ids);
+        ids.forEach((value, id) -> valuesById.get(table).put(id, value));
+    }
+}
@@ -1,14 +1,26 @@
 package ru.practicum.service;
 
 import ru.practicum.EndpointHitDto;
+import ru.practicum.HitBatchResultDto;
 import ru.practicum.NewEndpointHitDto;
+import ru.practicum.UriChangesDto;
+import ru.practicum.UriStatsRequestDto;
 import ru.practicum.ViewStatsDto;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface StatsService {
     EndpointHitDto createEndpointHit(NewEndpointHitDto newEndpointHitDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+    HitBatchResultDto createEndpointHits(List<NewEndpointHitDto> newEndpointHitDtos);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact);
+
+    StatsStream streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact);
+
+    Map<String, Long> getStatsByUri(UriStatsRequestDto request);
+
+    UriChangesDto getUriChanges(String app, String cursor, Integer limit);
 }
@@ -1,45 +1,323 @@
 package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.EndpointHitDto;
+import ru.practicum.HitBatchResultDto;
 import ru.practicum.NewEndpointHitDto;
+import ru.practicum.UriChangesDto;
+import ru.practicum.UriSinceDto;
+import ru.practicum.UriStatsRequestDto;
 import ru.practicum.ViewStatsDto;
 import ru.practicum.exception.ConditionsNotMetException;
 import ru.practicum.mapper.StatsMapper;
+import ru.practicum.model.DictionaryTable;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.RollupGranularity;
+import ru.practicum.model.StatsKey;
+import ru.practicum.model.TimeRange;
+import ru.practicum.model.UriChange;
+import ru.practicum.model.UriRange;
 import ru.practicum.repository.StatsRepository;
+import ru.practicum.repository.StatsRepositoryCustom;
+import ru.practicum.util.HyperLogLog;
+import ru.practicum.util.IpAddresses;
+import ru.practicum.util.RangeSplit;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
+    private static final String CURSOR_SEPARATOR = "_";
     private final StatsRepository statsRepository;
     private final StatsMapper mapper;
+    private final StatsDictionary dictionary;
+    private final HitWriter hitWriter;
+    private final TransactionTemplate streamTransaction;
+    private final int sketchPrecision;
 
+    public StatsServiceImpl(StatsRepository statsRepository,
+                            StatsMapper mapper,
+                            StatsDictionary dictionary,
+                            HitWriter hitWriter,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${stats.unique.errorRate:0.02}") double uniqueErrorRate) {
+        this.statsRepository = statsRepository;
+        this.mapper = mapper;
+        this.dictionary = dictionary;
+        this.hitWriter = hitWriter;
+        this.streamTransaction = new TransactionTemplate(transactionManager);
+        this.streamTransaction.setReadOnly(true);
+        this.sketchPrecision = HyperLogLog.precisionForError(uniqueErrorRate);
+    }
+
+    /**
+     * Ключи словарей получаются до открытия транзакции записи, см. {@link StatsDictionary#getOrCreateIds}.
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EndpointHitDto createEndpointHit(NewEndpointHitDto newEndpointHitDto) {
-        return mapper.mapToEndpointHitDto(statsRepository.save(mapper.mapToEndpointHit(newEndpointHitDto)));
+        EndpointHit endpointHit = mapper.mapToEndpointHit(newEndpointHitDto);
+        encode(List.of(endpointHit));
+        hitWriter.write(List.of(endpointHit));
+        return mapper.mapToEndpointHitDto(endpointHit);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public HitBatchResultDto createEndpointHits(List<NewEndpointHitDto> newEndpointHitDtos) {
+        List<EndpointHit> endpointHits = mapper.mapToEndpointHits(newEndpointHitDtos);
+        encode(endpointHits);
+        hitWriter.write(endpointHits);
+        return new HitBatchResultDto(endpointHits.size());
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact) {
         checkDates(start, end);
 
-        if (uris == null || uris.isEmpty()) {
-            if (unique) {
-                return statsRepository.getStatsAllWithUniqueIps(start, end);
+        Collection<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (!unique) {
+            return getHitsStats(start, end, uriIds);
+        }
+        RangeSplit split = RangeSplit.of(start, end, false);
+        if (exact || split.hours().isEmpty()) {
+            return toSortedStats(statsRepository.countUniqueIps(start, end.plus(1, ChronoUnit.MICROS), uriIds));
+        }
+        return getUniqueIpsEstimate(split, uriIds);
+    }
+
+    @Override
+    public StatsStream streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact) {
+        checkDates(start, end);
+
+        Collection<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return consumer -> {
+            };
+        }
+
+        if (!unique) {
+            RangeSplit split = RangeSplit.of(start, end, true);
+            return consumer -> streamTransaction.executeWithoutResult(status ->
+                    statsRepository.streamHits(split.raw(), split.minutes(), split.hours(), uriIds, consumer));
+        }
+        RangeSplit split = RangeSplit.of(start, end, false);
+        if (exact || split.hours().isEmpty()) {
+            return consumer -> streamTransaction.executeWithoutResult(status ->
+                    statsRepository.streamUniqueIps(start, end.plus(1, ChronoUnit.MICROS), uriIds, consumer));
+        }
+        return consumer -> streamTransaction.executeWithoutResult(status ->
+                streamUniqueIpsEstimate(split, uriIds, consumer));
+    }
+
+    @Override
+    public Map<String, Long> getStatsByUri(UriStatsRequestDto request) {
+        // повторный uri посчитался бы дважды, а его начальные даты могут не совпадать
+        Set<String> requestedUris = new HashSet<>();
+        for (UriSinceDto uriSince : request.getUris()) {
+            checkDates(uriSince.getSince(), request.getEnd());
+            if (!requestedUris.add(uriSince.getUri())) {
+                throw new ConditionsNotMetException("Uri " + uriSince.getUri() + " указан в запросе несколько раз");
             }
-            return statsRepository.getStatsAll(start, end);
-        } else if (unique) {
-            return statsRepository.getStatsByUriListWithUniqueIps(start, end, uris);
         }
 
-        return statsRepository.getStatsByUriList(start, end, uris);
+        // по незнакомым uri хитов заведомо нет
+        Map<String, Integer> uriIds = dictionary.findIds(DictionaryTable.URI,
+                request.getUris().stream().map(UriSinceDto::getUri).toList());
+        List<UriSinceDto> knownUris = request.getUris().stream()
+                .filter(uriSince -> uriIds.containsKey(uriSince.getUri()))
+                .toList();
+
+        Map<Integer, Long> hits;
+        if (!Boolean.TRUE.equals(request.getUnique())) {
+            hits = getHitsByUri(knownUris, uriIds, request.getEnd());
+        } else if (Boolean.TRUE.equals(request.getExact())) {
+            LocalDateTime endExclusive = request.getEnd().plus(1, ChronoUnit.MICROS);
+            hits = statsRepository.countUniqueIpsByUri(knownUris.stream()
+                    .map(uriSince -> new UriRange(uriIds.get(uriSince.getUri()), uriSince.getSince(), endExclusive))
+                    .toList());
+        } else {
+            hits = getUniqueIpsEstimateByUri(knownUris, uriIds, request.getEnd());
+        }
+
+        Map<Integer, String> uriValues = dictionary.getValues(DictionaryTable.URI, hits.keySet());
+        Map<String, Long> result = new HashMap<>();
+        hits.forEach((uriId, count) -> result.put(uriValues.get(uriId), count));
+        return result;
+    }
+
+    @Override
+    public UriChangesDto getUriChanges(String app, String cursor, Integer limit) {
+        UriChange after = parseCursor(cursor);
+        Integer appId = dictionary.findIds(DictionaryTable.APP, List.of(app)).get(app);
+        if (appId == null) {
+            return new UriChangesDto(List.of(), cursor);
+        }
+
+        List<UriChange> changes = statsRepository.findUriChanges(appId, after, limit);
+        if (changes.isEmpty()) {
+            return new UriChangesDto(List.of(), cursor);
+        }
+        Map<Integer, String> uris = dictionary.getValues(DictionaryTable.URI,
+                changes.stream().map(UriChange::uriId).toList());
+        UriChange last = changes.getLast();
+        return new UriChangesDto(changes.stream().map(change -> uris.get(change.uriId())).toList(),
+                last.changedXid() + CURSOR_SEPARATOR + last.uriId());
+    }
+
+    private UriChange parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            return new UriChange(Long.valueOf(cursor.substring(0, separator)),
+                    Integer.valueOf(cursor.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ConditionsNotMetException("Некорректный курсор изменений: " + cursor);
+        }
+    }
+
+    private Collection<Integer> findUriIds(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return null;
+        }
+        return dictionary.findIds(DictionaryTable.URI, uris).values();
+    }
+
+    private void encode(List<EndpointHit> endpointHits) {
+        Map<String, Integer> appIds = dictionary.getOrCreateIds(DictionaryTable.APP,
+                endpointHits.stream().map(EndpointHit::getApp).toList());
+        Map<String, Integer> uriIds = dictionary.getOrCreateIds(DictionaryTable.URI,
+                endpointHits.stream().map(EndpointHit::getUri).toList());
+        for (EndpointHit endpointHit : endpointHits) {
+            endpointHit.setAppId(appIds.get(endpointHit.getApp()));
+            endpointHit.setUriId(uriIds.get(endpointHit.getUri()));
+            endpointHit.setIp(IpAddresses.normalize(endpointHit.getIp()));
+        }
+    }
+
+    private List<ViewStatsDto> getHitsStats(LocalDateTime start, LocalDateTime end, Collection<Integer> uriIds) {
+        RangeSplit split = RangeSplit.of(start, end, true);
+        Map<StatsKey, Long> hits = new HashMap<>();
+        split.raw().forEach(range -> mergeHits(hits, statsRepository.countHits(range.start(), range.end(), uriIds)));
+        split.minutes().forEach(range -> mergeHits(hits,
+                statsRepository.sumRollupHits(RollupGranularity.MINUTE, range.start(), range.end(), uriIds)));
+        split.hours().forEach(range -> mergeHits(hits,
+                statsRepository.sumRollupHits(RollupGranularity.HOUR, range.start(), range.end(), uriIds)));
+        return toSortedStats(hits);
+    }
+
+    private List<ViewStatsDto> getUniqueIpsEstimate(RangeSplit split, Collection<Integer> uriIds) {
+        // полные часы берутся из скетчей, ip с неполных часов по краям досыпаются в те же скетчи
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>();
+        split.hours().forEach(range -> statsRepository.forEachIpSketch(range.start(), range.end(), uriIds,
+                (key, sketch) -> mergeSketch(sketches, key, sketch)));
+        split.raw().forEach(range -> statsRepository.forEachHitIp(range.start(), range.end(), uriIds,
+                (key, ip) -> addIp(sketches, key, ip)));
+
+        Map<StatsKey, Long> hits = new HashMap<>();
+        sketches.forEach((key, sketch) -> hits.put(key, sketch.estimate()));
+        return toSortedStats(hits);
+    }
+
+    private void streamUniqueIpsEstimate(RangeSplit split, Collection<Integer> uriIds, Consumer<ViewStatsDto> consumer) {
+        EstimateStream estimates = new EstimateStream(consumer);
+        statsRepository.streamIpSketches(split.hours(), split.raw(), uriIds, estimates);
+        estimates.flush();
+    }
+
+    private Map<Integer, Long> getHitsByUri(List<UriSinceDto> uris, Map<String, Integer> uriIds, LocalDateTime end) {
+        List<UriRange> raw = new ArrayList<>();
+        List<UriRange> minutes = new ArrayList<>();
+        List<UriRange> hours = new ArrayList<>();
+        for (UriSinceDto uriSince : uris) {
+            RangeSplit split = RangeSplit.of(uriSince.getSince(), end, true);
+            Integer uriId = uriIds.get(uriSince.getUri());
+            addUriRanges(raw, uriId, split.raw());
+            addUriRanges(minutes, uriId, split.minutes());
+            addUriRanges(hours, uriId, split.hours());
+        }
+
+        Map<Integer, Long> hits = statsRepository.countHitsByUri(raw);
+        mergeHits(hits, statsRepository.sumRollupHitsByUri(RollupGranularity.MINUTE, minutes));
+        mergeHits(hits, statsRepository.sumRollupHitsByUri(RollupGranularity.HOUR, hours));
+        return hits;
+    }
+
+    private Map<Integer, Long> getUniqueIpsEstimateByUri(List<UriSinceDto> uris, Map<String, Integer> uriIds,
+                                                         LocalDateTime end) {
+        List<UriRange> exact = new ArrayList<>();
+        List<UriRange> raw = new ArrayList<>();
+        List<UriRange> hours = new ArrayList<>();
+        for (UriSinceDto uriSince : uris) {
+            RangeSplit split = RangeSplit.of(uriSince.getSince(), end, false);
+            Integer uriId = uriIds.get(uriSince.getUri());
+            // без полных часов диапазон целиком сырой, и уникальные ip по нему дешевле посчитать точно
+            addUriRanges(split.hours().isEmpty() ? exact : raw, uriId, split.raw());
+            addUriRanges(hours, uriId, split.hours());
+        }
+
+        Map<Integer, HyperLogLog> sketches = new HashMap<>();
+        statsRepository.forEachIpSketchByUri(hours, (uriId, sketch) -> mergeSketch(sketches, uriId, sketch));
+        statsRepository.forEachHitIpByUri(raw, (uriId, ip) -> addIp(sketches, uriId, ip));
+
+        Map<Integer, Long> hits = statsRepository.countUniqueIpsByUri(exact);
+        sketches.forEach((uriId, sketch) -> hits.put(uriId, sketch.estimate()));
+        return hits;
+    }
+
+    private <K> void mergeHits(Map<K, Long> hits, Map<K, Long> added) {
+        added.forEach((key, count) -> hits.merge(key, count, Long::sum));
+    }
+
+    private void addUriRanges(List<UriRange> target, Integer uriId, List<TimeRange> ranges) {
+        ranges.forEach(range -> target.add(new UriRange(uriId, range.start(), range.end())));
+    }
+
+    private <K> void mergeSketch(Map<K, HyperLogLog> sketches, K key, HyperLogLog sketch) {
+        sketches.merge(key, sketch, (current, added) -> {
+            current.merge(added);
+            return current;
+        });
+    }
+
+    private <K> void addIp(Map<K, HyperLogLog> sketches, K key, String ip) {
+        sketches.computeIfAbsent(key, k -> new HyperLogLog(sketchPrecision)).add(ip);
+    }
+
+    private List<ViewStatsDto> toSortedStats(Map<StatsKey, Long> hits) {
+        Map<Integer, String> apps = dictionary.getValues(DictionaryTable.APP,
+                hits.keySet().stream().map(StatsKey::appId).collect(Collectors.toSet()));
+        Map<Integer, String> uris = dictionary.getValues(DictionaryTable.URI,
+                hits.keySet().stream().map(StatsKey::uriId).collect(Collectors.toSet()));
+        return hits.entrySet().stream()
+                .map(entry -> new ViewStatsDto(apps.get(entry.getKey().appId()), uris.get(entry.getKey().uriId()),
+                        entry.getValue()))
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
     }
 
     private void checkDates(LocalDateTime start, LocalDateTime end) {
@@ -47,4 +325,39 @@ public class StatsServiceImpl implements StatsService {
             throw new ConditionsNotMetException("Начальная дата не может быть позже конечной");
         }
     }
+
+    /**
+     * Строки приходят упорядоченными по ключу, поэтому в памяти держится скетч только текущего ключа.
+     * Результат, в отличие от обычного режима, не сортируется по числу просмотров.
+     */
+    @RequiredArgsConstructor
+    private class EstimateStream implements StatsRepositoryCustom.IpSketchRowHandler {
+        private final Consumer<ViewStatsDto> consumer;
+        private StatsKey key;
+        private HyperLogLog sketch;
+
+        @Override
+        public void accept(StatsKey rowKey, HyperLogLog rowSketch, String ip) {
+            if (!rowKey.equals(key)) {
+                flush();
+                key = rowKey;
+                sketch = new HyperLogLog(sketchPrecision);
+            }
+            if (rowSketch != null) {
+                sketch.merge(rowSketch);
+            } else {
+                sketch.add(ip);
+            }
+        }
+
+        void flush() {
+            if (key == null) {
+                return;
+            }
+            String app = dictionary.getValues(DictionaryTable.APP, List.of(key.appId())).get(key.appId());
+            String uri = dictionary.getValues(DictionaryTable.URI, List.of(key.uriId())).get(key.uriId());
+            consumer.accept(new ViewStatsDto(app, uri, sketch.estimate()));
+            key = null;
+        }
+    }
 }
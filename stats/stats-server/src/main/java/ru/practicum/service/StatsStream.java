@@ -0,0 +1,13 @@
+package ru.practicum.service;
+
+import ru.practicum.ViewStatsDto;
+
+import java.util.function.Consumer;
+
+/**
+ * Подготовленная выборка статистики: строки читаются из базы курсором только при обходе.
+ */
+@FunctionalInterface
+public interface StatsStream {
+    void forEach(Consumer<ViewStatsDto> consumer);
+}
@@ -0,0 +1,141 @@
+package ru.practicum.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Скетч HyperLogLog для оценки числа уникальных значений.
+ * Регистры хранятся по байту, размер скетча - 2^precision байт, стандартная ошибка - 1.04 / sqrt(2^precision).
+ * Скетчи объединяются поэлементным максимумом регистров; скетч большей точности перед этим понижается до меньшей,
+ * что даёт те же регистры, как если бы значения сразу добавлялись в скетч меньшей точности.
+ */
+public class HyperLogLog {
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 16;
+    private int precision;
+    private byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Точность скетча должна быть от " + MIN_PRECISION + " до " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] registers) {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision || precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Некорректный размер скетча: " + registers.length);
+        }
+        return new HyperLogLog(precision, registers.clone());
+    }
+
+    public static int precisionForError(double errorRate) {
+        int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / errorRate, 2)) / Math.log(2));
+        return Math.min(MAX_PRECISION, Math.max(MIN_PRECISION, precision));
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), Long.SIZE - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Добавляет в скетч значения другого. При разной точности этот скетч понижается до меньшей из двух.
+     */
+    public void merge(HyperLogLog other) {
+        byte[] otherRegisters = other.registers;
+        if (other.precision > precision) {
+            otherRegisters = reduce(other.registers, other.precision, precision);
+        } else if (other.precision < precision) {
+            registers = reduce(registers, precision, other.precision);
+            precision = other.precision;
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    /**
+     * Младшие биты старого индекса становятся началом хвоста хэша: если среди них есть единица, ранг определяется ею,
+     * иначе к старому рангу прибавляется число отброшенных бит.
+     */
+    private static byte[] reduce(byte[] registers, int precision, int target) {
+        int shift = precision - target;
+        byte[] reduced = new byte[1 << target];
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int dropped = i & ((1 << shift) - 1);
+            int rank = dropped == 0
+                    ? registers[i] + shift
+                    : shift - (Integer.SIZE - Integer.numberOfLeadingZeros(dropped)) + 1;
+            int index = i >>> shift;
+            if (rank > reduced[index]) {
+                reduced[index] = (byte) rank;
+            }
+        }
+        return reduced;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    private static long hash(String value) {
+        // FNV-1a с финализатором MurmurHash3 для равномерного распределения старших бит
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.util;
+
+import ru.practicum.exception.ConditionsNotMetException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+public final class IpAddresses {
+    private static final Pattern IPV4_PATTERN = Pattern.compile("((25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1?\\d?\\d)");
+    private static final Pattern IPV6_PATTERN = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Приводит ip к канонической записи, чтобы один адрес давал одно значение в скетчах
+     * независимо от того, пришёл он в запросе или прочитан из колонки inet.
+     * Разбираются только литералы: имена хостов отклоняются без обращения к DNS.
+     */
+    public static String normalize(String ip) {
+        if (!IPV4_PATTERN.matcher(ip).matches() && !IPV6_PATTERN.matcher(ip).matches()) {
+            throw new ConditionsNotMetException("Некорректный ip-адрес: " + ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new ConditionsNotMetException("Некорректный ip-адрес: " + ip);
+        }
+    }
+}
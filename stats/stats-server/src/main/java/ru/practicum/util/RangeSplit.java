@@ -0,0 +1,57 @@
+package ru.practicum.util;
+
+import ru.practicum.model.TimeRange;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение интервала [start, end] на полуоткрытые диапазоны: полные часы и минуты читаются из агрегатов,
+ * сырые записи - только на неполных минутах (или часах, если минутные агрегаты не используются) по краям.
+ */
+public record RangeSplit(List<TimeRange> raw, List<TimeRange> minutes, List<TimeRange> hours) {
+
+    public static RangeSplit of(LocalDateTime start, LocalDateTime end, boolean withMinutes) {
+        // timestamp в PostgreSQL хранится с точностью до микросекунды, поэтому "<= end" равносильно "< end + 1 мкс"
+        LocalDateTime endExclusive = end.plus(1, ChronoUnit.MICROS);
+        RangeSplit split = new RangeSplit(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        ChronoUnit edgeUnit = withMinutes ? ChronoUnit.MINUTES : ChronoUnit.HOURS;
+        LocalDateTime first = ceil(start, edgeUnit);
+        LocalDateTime last = end.truncatedTo(edgeUnit);
+        if (!first.isBefore(last)) {
+            add(split.raw, start, endExclusive);
+            return split;
+        }
+
+        add(split.raw, start, first);
+        add(split.raw, last, endExclusive);
+        if (!withMinutes) {
+            add(split.hours, first, last);
+            return split;
+        }
+
+        LocalDateTime firstHour = ceil(first, ChronoUnit.HOURS);
+        LocalDateTime lastHour = last.truncatedTo(ChronoUnit.HOURS);
+        if (firstHour.isBefore(lastHour)) {
+            add(split.minutes, first, firstHour);
+            add(split.hours, firstHour, lastHour);
+            add(split.minutes, lastHour, last);
+        } else {
+            add(split.minutes, first, last);
+        }
+        return split;
+    }
+
+    private static void add(List<TimeRange> ranges, LocalDateTime start, LocalDateTime end) {
+        if (start.isBefore(end)) {
+            ranges.add(new TimeRange(start, end));
+        }
+    }
+
+    private static LocalDateTime ceil(LocalDateTime dateTime, ChronoUnit unit) {
+        LocalDateTime truncated = dateTime.truncatedTo(unit);
+        return truncated.equals(dateTime) ? dateTime : truncated.plus(1, unit);
+    }
+}
@@ -2,11 +2,13 @@ package ru.practicum.validation;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingRequestValueException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import ru.practicum.exception.ConditionsNotMetException;
 
 import java.util.List;
@@ -32,6 +34,17 @@ public class ErrorHandler {
         return new ErrorResponse("Ошибка валидации данных", violations);
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ErrorResponse handleMethodValidationExceptions(HandlerMethodValidationException e) {
+        List<Violation> violations = e.getAllErrors().stream()
+                .map(error -> new Violation(error instanceof FieldError fieldError ? fieldError.getField() : null,
+                        error.getDefaultMessage()))
+                .toList();
+        log.debug(e.getMessage());
+        return new ErrorResponse("Ошибка валидации данных", violations);
+    }
+
     @ExceptionHandler(ConditionsNotMetException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleConditionsNotMet(final ConditionsNotMetException e) {
@@ -1,13 +1,63 @@
 DROP TABLE IF EXISTS endpoint_hit;
+DROP TABLE IF EXISTS endpoint_hit_minute;
+DROP TABLE IF EXISTS endpoint_hit_hour;
+DROP TABLE IF EXISTS endpoint_uri_change;
+DROP TABLE IF EXISTS stats_app;
+DROP TABLE IF EXISTS stats_uri;
+DROP FUNCTION IF EXISTS hll_merge(BYTEA, BYTEA);
+
+CREATE TABLE IF NOT EXISTS stats_app (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    value           varchar(512) NOT NULL,
+    CONSTRAINT stats_app_value_unique UNIQUE (value)
+);
+
+CREATE TABLE IF NOT EXISTS stats_uri (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    value           varchar(2028) NOT NULL,
+    CONSTRAINT stats_uri_value_unique UNIQUE (value)
+);
 
 CREATE TABLE IF NOT EXISTS endpoint_hit (
-    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app             varchar(512) NOT NULL,
-    uri             varchar(2028) NOT NULL,
-    ip              varchar(64) NOT NULL,
-    "timestamp"     TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    ip              INET NOT NULL,
+    "timestamp"     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_endpoint_hit PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+CREATE TABLE IF NOT EXISTS endpoint_hit_default PARTITION OF endpoint_hit DEFAULT;
+
+CREATE INDEX idx_endpoint_hit_timestamp ON endpoint_hit ("timestamp");
+CREATE INDEX idx_endpoint_hit_uri_timestamp ON endpoint_hit (uri_id, "timestamp");
+
+CREATE TABLE IF NOT EXISTS endpoint_hit_minute (
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    bucket          TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits            BIGINT NOT NULL,
+    CONSTRAINT pk_endpoint_hit_minute PRIMARY KEY (bucket, app_id, uri_id)
+);
+
+CREATE INDEX idx_endpoint_hit_minute_uri ON endpoint_hit_minute (uri_id, bucket);
+
+CREATE TABLE IF NOT EXISTS endpoint_hit_hour (
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    bucket          TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits            BIGINT NOT NULL,
+    ip_sketch       BYTEA NOT NULL,
+    CONSTRAINT pk_endpoint_hit_hour PRIMARY KEY (bucket, app_id, uri_id)
+);
+
+CREATE INDEX idx_endpoint_hit_hour_uri ON endpoint_hit_hour (uri_id, bucket);
+
+CREATE TABLE IF NOT EXISTS endpoint_uri_change (
+    app_id          INTEGER NOT NULL,
+    uri_id          INTEGER NOT NULL,
+    changed_xid     BIGINT NOT NULL,
+    CONSTRAINT pk_endpoint_uri_change PRIMARY KEY (app_id, uri_id)
 );
 
-CREATE INDEX idx_endpoint_hit_timestamp ON endpoint_hit (timestamp);
-CREATE INDEX idx_endpoint_hit_uri ON endpoint_hit (uri);
-CREATE INDEX idx_endpoint_hit_ip ON endpoint_hit (ip);
\ No newline at end of file
+CREATE INDEX idx_endpoint_uri_change_changed_xid ON endpoint_uri_change (app_id, changed_xid, uri_id);
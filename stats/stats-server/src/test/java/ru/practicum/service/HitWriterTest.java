@@ -0,0 +1,126 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.StatsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HitWriterTest {
+    private static final int WAITING_WRITERS = 5;
+    private final StatsRepository statsRepository = mock(StatsRepository.class);
+    private final List<List<EndpointHit>> insertedGroups = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstInsertStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstInsert = new CountDownLatch(1);
+    private final HitWriter hitWriter;
+    private EndpointHit rejectedHit;
+
+    HitWriterTest() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        hitWriter = new HitWriter(statsRepository, transactionManager, 0.02);
+    }
+
+    @Test
+    void writersArrivingDuringWriteAreCommittedAsOneGroup() throws Exception {
+        blockFirstInsert();
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> hitWriter.write(List.of(hit("/first"))));
+        assertThat(firstInsertStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Thread> waiting = new ArrayList<>();
+        for (int i = 0; i < WAITING_WRITERS; i++) {
+            EndpointHit hit = hit("/events/" + i);
+            waiting.add(Thread.ofPlatform().start(() -> hitWriter.write(List.of(hit))));
+        }
+        awaitBlocked(waiting);
+        releaseFirstInsert.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        for (Thread thread : waiting) {
+            thread.join(5000);
+        }
+
+        assertThat(insertedGroups).hasSize(2);
+        assertThat(insertedGroups.get(0)).hasSize(1);
+        assertThat(insertedGroups.get(1)).hasSize(WAITING_WRITERS);
+    }
+
+    @Test
+    void rejectedGroupIsRetriedPerRequest() throws Exception {
+        EndpointHit bad = hit("/bad");
+        rejectedHit = bad;
+        blockFirstInsert();
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> hitWriter.write(List.of(hit("/first"))));
+        assertThat(firstInsertStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> good = new CompletableFuture<>();
+        CompletableFuture<Void> rejected = new CompletableFuture<>();
+        List<Thread> waiting = List.of(
+                Thread.ofPlatform().start(() -> complete(good, hit("/good"))),
+                Thread.ofPlatform().start(() -> complete(rejected, bad)));
+        awaitBlocked(waiting);
+        releaseFirstInsert.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        good.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    /**
+     * Первая запись держит блокировку записи, пока тест не отпустит её. Группу с rejectedHit база отклоняет.
+     */
+    private void blockFirstInsert() {
+        when(statsRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<EndpointHit> hits = invocation.getArgument(0);
+            if (hits.stream().anyMatch(hit -> hit == rejectedHit)) {
+                throw new DataIntegrityViolationException("invalid input syntax for type inet");
+            }
+            insertedGroups.add(List.copyOf(hits));
+            if (firstInsertStarted.getCount() > 0) {
+                firstInsertStarted.countDown();
+                assertThat(releaseFirstInsert.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            return hits.size();
+        });
+    }
+
+    private void complete(CompletableFuture<Void> result, EndpointHit hit) {
+        try {
+            hitWriter.write(List.of(hit));
+            result.complete(null);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static void awaitBlocked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (threads.stream().anyMatch(thread -> thread.getState() != Thread.State.WAITING)) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static EndpointHit hit(String uri) {
+        EndpointHit hit = new EndpointHit();
+        hit.setUri(uri);
+        hit.setAppId(1);
+        hit.setUriId(uri.hashCode());
+        hit.setIp("10.0.0.1");
+        return hit;
+    }
+}
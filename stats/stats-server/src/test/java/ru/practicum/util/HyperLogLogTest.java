@@ -0,0 +1,45 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+    private static final int VALUES = 50_000;
+
+    @Test
+    void mergeReducesHigherPrecisionWithoutLosingValues() {
+        HyperLogLog precise = sketch(14, 0, VALUES);
+        HyperLogLog coarse = sketch(10, 0, VALUES);
+
+        HyperLogLog merged = new HyperLogLog(10);
+        merged.merge(precise);
+
+        assertThat(merged.getPrecision()).isEqualTo(10);
+        assertThat(merged.toBytes()).isEqualTo(coarse.toBytes());
+    }
+
+    @Test
+    void mergeIntoHigherPrecisionReducesItself() {
+        HyperLogLog merged = sketch(14, 0, VALUES);
+        merged.merge(sketch(10, VALUES, 2 * VALUES));
+
+        assertThat(merged.getPrecision()).isEqualTo(10);
+        assertThat(merged.toBytes()).isEqualTo(sketch(10, 0, 2 * VALUES).toBytes());
+    }
+
+    @Test
+    void estimateStaysWithinErrorBound() {
+        HyperLogLog sketch = sketch(HyperLogLog.precisionForError(0.02), 0, VALUES);
+
+        assertThat(sketch.estimate()).isBetween((long) (VALUES * 0.94), (long) (VALUES * 1.06));
+    }
+
+    private HyperLogLog sketch(int precision, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add("10.0." + (i >> 8) + "." + (i & 0xff));
+        }
+        return sketch;
+    }
+}